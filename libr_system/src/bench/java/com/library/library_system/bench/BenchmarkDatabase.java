@@ -0,0 +1,109 @@
+package com.library.library_system.bench;
+
+import com.library.library_system.LibrarySystemApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Встроенный PostgreSQL с контекстом приложения и синтетическими данными для бенчмарков.
+ * Схему создают миграции Flyway приложения, данные генерируются
+ * на стороне базы через generate_series, поэтому даже миллион выдач
+ * заполняется за секунды.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+
+    private final ConfigurableApplicationContext context;
+
+    private final int bookCount;
+
+    private final int readerCount;
+
+    /**
+     * Запускает базу и приложение и заполняет таблицы.
+     * @param loanCount количество выдач; книг в 10 раз, читателей в 20 раз меньше
+     */
+    public BenchmarkDatabase(int loanCount) throws Exception {
+        this.bookCount = Math.max(loanCount / 10, 10);
+        this.readerCount = Math.max(loanCount / 20, 10);
+
+        postgres = EmbeddedPostgres.builder().start();
+        // Аргументы командной строки, а не properties(): они перекрывают application.properties
+        context = new SpringApplicationBuilder(LibrarySystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=",
+                        "--spring.profiles.active=bench",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.library=WARN");
+
+        seed(context.getBean(JdbcTemplate.class), loanCount);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public int getReaderCount() {
+        return readerCount;
+    }
+
+    private void seed(JdbcTemplate jdbc, int loanCount) {
+        long start = System.currentTimeMillis();
+
+        jdbc.update("INSERT INTO librarians (librarian_id, librarian_number, full_name, position) " +
+                "SELECT g, 'L' || g, 'Библиотекарь ' || g, 'Библиотекарь' FROM generate_series(1, 20) g");
+
+        jdbc.update("INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+                "SELECT g, 'B' || g, " +
+                "       (ARRAY['Война', 'Мир', 'Сад', 'Море', 'Город', 'Дорога', 'Остров'])[1 + g % 7] || ' ' || g, " +
+                "       'Автор ' || (g % 1000), 1900 + g % 125, 0 " +
+                "FROM generate_series(1, ?) g", bookCount);
+
+        jdbc.update("INSERT INTO readers (reader_id, ticket_number, full_name, phone_number, registration_date, active_loan_count, version) " +
+                "SELECT g, 'T' || g, 'Читатель ' || g, " +
+                "       '+7(900)' || substr(p, 1, 3) || '-' || substr(p, 4, 2) || '-' || substr(p, 6, 2), " +
+                "       current_date - g % 3650, 0, 0 " +
+                "FROM generate_series(1, ?) g, lpad(g::text, 7, '0') p", readerCount);
+
+        // Последние bookCount / 2 выдач не возвращены, у каждой из них своя книга
+        jdbc.update("INSERT INTO book_loans (loan_id, book_id, reader_id, librarian_id, loan_date, due_date, return_date) " +
+                "SELECT g, 1 + g % ?, 1 + g % ?, 1 + g % 20, d, d + 14, " +
+                "       CASE WHEN g > ? THEN NULL ELSE d + 7 END " +
+                "FROM generate_series(1, ?) g, " +
+                "     LATERAL (SELECT current_date - ((? - g)::bigint * 3650 / ?)::int AS d) dates",
+                bookCount, readerCount, loanCount - bookCount / 2, loanCount, loanCount, loanCount);
+
+        jdbc.update("UPDATE books b SET current_loan_id = bl.loan_id " +
+                "FROM book_loans bl WHERE bl.book_id = b.book_id AND bl.return_date IS NULL");
+        jdbc.update("UPDATE readers r SET active_loan_count = c.cnt " +
+                "FROM (SELECT reader_id, count(*) AS cnt FROM book_loans WHERE return_date IS NULL GROUP BY reader_id) c " +
+                "WHERE c.reader_id = r.reader_id");
+        // ID заданы явно (плотные 1..N): последовательности продолжаются после них
+        jdbc.queryForList("SELECT setval('books_seq', (SELECT max(book_id) + 1 FROM books), false), " +
+                "setval('readers_seq', (SELECT max(reader_id) + 1 FROM readers), false), " +
+                "setval('librarians_seq', (SELECT max(librarian_id) + 1 FROM librarians), false), " +
+                "setval('book_loans_seq', (SELECT max(loan_id) + 1 FROM book_loans), false)");
+        jdbc.execute("ANALYZE");
+
+        System.out.println("BenchmarkDatabase: " + loanCount + " выдач, " + bookCount + " книг, " +
+                readerCount + " читателей за " + (System.currentTimeMillis() - start) + " мс");
+    }
+
+    @Override
+    public void close() throws Exception {
+        context.close();
+        postgres.close();
+    }
+}
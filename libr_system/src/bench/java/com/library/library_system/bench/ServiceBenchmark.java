@@ -0,0 +1,110 @@
+package com.library.library_system.bench;
+
+import com.library.library_system.dto.BookListItem;
+import com.library.library_system.dto.LoanListItem;
+import com.library.library_system.dto.LoanPage;
+import com.library.library_system.entity.Book;
+import com.library.library_system.entity.Reader;
+import com.library.library_system.service.BookLoanService;
+import com.library.library_system.service.BookService;
+import com.library.library_system.service.DuplicateValueException;
+import com.library.library_system.service.ReaderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import java.sql.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бенчмарки горячих путей сервисов на синтетических данных.
+ * Размер данных задается параметром loans: -p loans=10000,100000,1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ServiceBenchmark {
+
+    @Param({"10000"})
+    public int loans;
+
+    private BenchmarkDatabase database;
+
+    private BookService bookService;
+
+    private BookLoanService bookLoanService;
+
+    private ReaderService readerService;
+
+    private final AtomicLong readerSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(loans);
+        bookService = database.getBean(BookService.class);
+        bookLoanService = database.getBean(BookLoanService.class);
+        readerService = database.getBean(ReaderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Page<BookListItem> searchBooks() {
+        return bookService.searchBooks("мир", 0, 50);
+    }
+
+    @Benchmark
+    public Page<LoanListItem> searchLoans() {
+        return bookLoanService.searchLoans("Читатель 1" + ThreadLocalRandom.current().nextInt(10), 0, 50);
+    }
+
+    @Benchmark
+    public Page<Book> getAvailableBooks() {
+        int pages = Math.max(database.getBookCount() / 2 / 50, 1);
+        return bookService.getAvailableBooks(ThreadLocalRandom.current().nextInt(pages), 50);
+    }
+
+    /**
+     * Сохранение нового читателя: проверки уникальности проходят, строка вставляется.
+     */
+    @Benchmark
+    public Reader saveNewReader() {
+        long n = readerSequence.incrementAndGet();
+        String digits = String.format("%07d", n);
+        return readerService.saveReader(newReader("BT" + n,
+                "+7(901)" + digits.substring(0, 3) + "-" + digits.substring(3, 5) + "-" + digits.substring(5, 7)));
+    }
+
+    /**
+     * Сохранение читателя с занятым номером билета: путь отказа по ограничению уникальности.
+     */
+    @Benchmark
+    public Object saveDuplicateReader() {
+        int n = 1 + ThreadLocalRandom.current().nextInt(database.getReaderCount());
+        try {
+            return readerService.saveReader(newReader("T" + n, "+7(902)000-00-00"));
+        } catch (DuplicateValueException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public LoanPage getLoansPage() {
+        return bookLoanService.getLoansPage("all", null, null, 50);
+    }
+
+    private static Reader newReader(String ticketNumber, String phoneNumber) {
+        Reader reader = new Reader();
+        reader.setTicketNumber(ticketNumber);
+        reader.setFullName("Читатель бенчмарка " + ticketNumber);
+        reader.setPhoneNumber(phoneNumber);
+        reader.setRegistrationDate(new Date(System.currentTimeMillis()));
+        return reader;
+    }
+}
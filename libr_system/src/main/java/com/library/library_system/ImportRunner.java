@@ -0,0 +1,69 @@
+package com.library.library_system;
+
+import com.library.library_system.dto.ImportError;
+import com.library.library_system.dto.ImportReport;
+import com.library.library_system.service.ImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Импорт из файла при запуске из командной строки:
+ * java -jar libr_system.jar --spring.main.web-application-type=none
+ *      --library.import.type=books --library.import.file=books.csv
+ * Формат определяется по расширению файла (.json или CSV) либо задается
+ * library.import.format. После импорта приложение завершается,
+ * код выхода 1 - были ошибочные строки или чтение прервано.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("library.import.file")
+public class ImportRunner implements ApplicationRunner {
+
+    @Value("${library.import.file}")
+    private String file;
+
+    @Value("${library.import.type}")
+    private String type;
+
+    @Value("${library.import.format:}")
+    private String format;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path path = Path.of(file);
+        String fileFormat = !format.isBlank() ? format
+                : path.getFileName().toString().toLowerCase().endsWith(".json") ? "json" : "csv";
+
+        ImportReport report;
+        try (InputStream input = Files.newInputStream(path)) {
+            report = importService.importData(type, fileFormat, input);
+        }
+
+        for (ImportError error : report.getErrors()) {
+            log.warn("Строка {}: {}", error.getRow(), error.getMessage());
+        }
+        if (report.getErrorMessage() != null) {
+            log.error(report.getErrorMessage());
+        }
+
+        int exitCode = report.getFailed() > 0 || report.getErrorMessage() != null ? 1 : 0;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
\ No newline at end of file
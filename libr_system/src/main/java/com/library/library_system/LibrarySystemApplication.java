@@ -1,13 +1,17 @@
 package com.library.library_system;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Основной класс Spring Boot приложения библиотечной системы.
  * Точка входа в приложение.
  */
+@Slf4j
 @SpringBootApplication
+@EnableScheduling
 public class LibrarySystemApplication {
 
     /**
@@ -16,6 +20,6 @@ public class LibrarySystemApplication {
      */
     public static void main(String[] args) {
         SpringApplication.run(LibrarySystemApplication.class, args);
-        System.out.println("http://localhost:8080");
+        log.info("http://localhost:8080");
     }
 }
\ No newline at end of file
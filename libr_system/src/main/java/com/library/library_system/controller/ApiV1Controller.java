@@ -0,0 +1,110 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.JsonApiService;
+import com.library.library_system.service.JsonApiService.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST API для киосков и внешних систем: книги, читатели, библиотекари и выдачи в JSON.
+ * Ресурс задается сегментом пути: /api/v1/books, /readers, /librarians, /loans.
+ * Параметр fields (через запятую) ограничивает поля ответа, и база читает только их.
+ * Страницы и выборки по списку id пишутся в ответ сразу; полная выгрузка (/all)
+ * передается асинхронно (StreamingResponseBody), как CSV в ExportController.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class ApiV1Controller {
+
+    @Autowired
+    private JsonApiService jsonApiService;
+
+    /**
+     * Страница ресурса по возрастанию id.
+     * Следующая страница запрашивается с after = nextAfter из ответа.
+     * @param after id последней строки предыдущей страницы
+     * @param size размер страницы, не больше JsonApiService.MAX_PAGE_SIZE
+     * @param fields поля ответа
+     */
+    @GetMapping("/{resource}")
+    public void page(@PathVariable String resource,
+                     @RequestParam(value = "after", required = false) Long after,
+                     @RequestParam(value = "size", defaultValue = "" + JsonApiService.DEFAULT_PAGE_SIZE) int size,
+                     @RequestParam(value = "fields", required = false) String fields,
+                     HttpServletResponse response) throws IOException {
+        Resource target = resource(resource);
+        List<String> selected = jsonApiService.selectFields(target, fields);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonApiService.writePage(target, selected, after, size, response.getOutputStream());
+    }
+
+    /**
+     * Одна строка ресурса по id; 404, если ее нет.
+     */
+    @GetMapping("/{resource}/{id}")
+    public void one(@PathVariable String resource,
+                    @PathVariable Long id,
+                    @RequestParam(value = "fields", required = false) String fields,
+                    HttpServletResponse response) throws IOException {
+        Resource target = resource(resource);
+        List<String> selected = jsonApiService.selectFields(target, fields);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (!jsonApiService.writeOne(target, selected, id, response.getOutputStream())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, resource + "/" + id + " не найден");
+        }
+    }
+
+    /**
+     * Строки по списку id одним запросом к базе (сверка, обновление данных киоска).
+     * Тело запроса - JSON-массив id, не больше JsonApiService.MAX_BULK_IDS.
+     * Ненайденные id перечисляются в поле missing ответа.
+     */
+    @PostMapping("/{resource}/bulk")
+    public void bulk(@PathVariable String resource,
+                     @RequestBody List<Long> ids,
+                     @RequestParam(value = "fields", required = false) String fields,
+                     HttpServletResponse response) throws IOException {
+        Resource target = resource(resource);
+        List<String> selected = jsonApiService.selectFields(target, fields);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonApiService.writeByIds(target, selected, ids, response.getOutputStream());
+    }
+
+    /**
+     * Все строки ресурса JSON-массивом; память сервера не зависит от размера таблицы.
+     */
+    @GetMapping("/{resource}/all")
+    public ResponseEntity<StreamingResponseBody> all(@PathVariable String resource,
+                                                     @RequestParam(value = "fields", required = false) String fields) {
+        Resource target = resource(resource);
+        List<String> selected = jsonApiService.selectFields(target, fields);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> jsonApiService.writeAll(target, selected, out));
+    }
+
+    /**
+     * Неверные параметры запроса (неизвестное поле, слишком много id): 400 с описанием.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    private static Resource resource(String path) {
+        Resource resource = Resource.fromPath(path);
+        if (resource == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Неизвестный ресурс " + path);
+        }
+        return resource;
+    }
+}
\ No newline at end of file
@@ -1,13 +1,18 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.dto.BookListItem;
 import com.library.library_system.entity.Book;
 import com.library.library_system.service.BookService;
+import com.library.library_system.service.SearchQuery;
 import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.util.List;
 
@@ -15,21 +20,39 @@ import java.util.List;
  * Контроллер для управления книгами.
  * Обрабатывает запросы по пути /books.
  */
+@Slf4j
 @Controller
 @RequestMapping("/books")
 public class BookController {
 
+    /**
+     * Типы сущностей, данные которых выводит список.
+     */
+    private static final Class<?>[] LIST_TYPES = {Book.class};
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private PageEtags pageEtags;
+
     /**
      * Отображает список всех книг.
+     * Статистика и таблица берутся из кэша фрагментов, пока книги не изменились;
+     * если не изменилась и страница у клиента, отвечает 304 без обращения к базе.
      */
     @GetMapping
-    public String listBooks(Model model) {
+    public String listBooks(ServletWebRequest request, Model model) {
+        if (pageEtags.notModified(request, "books", LIST_TYPES)) {
+            return null;
+        }
         try {
-            List<Book> books = bookService.getAllBooks();
-            model.addAttribute("books", books);
+            fragmentCache.render(model, "books/list", "", LIST_TYPES,
+                    () -> model.addAttribute("books", bookService.getAllBooks()), "stats", "table");
+            pageEtags.addEtag(request);
             return "books/list";
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Ошибка загрузки книг: " + e.getMessage());
@@ -146,24 +169,24 @@ public class BookController {
      */
     @GetMapping("/search")
     public String searchBooks(@RequestParam(value = "keyword", required = false) String keyword,
+                              @RequestParam(value = "page", defaultValue = "0") int page,
+                              @RequestParam(value = "size", defaultValue = "" + SearchQuery.DEFAULT_PAGE_SIZE) int size,
                               Model model) {
         try {
-            List<Book> books;
-
             if (keyword != null && !keyword.trim().isEmpty()) {
-                books = bookService.searchBooks(keyword);
+                Page<BookListItem> results = bookService.searchBooks(keyword, page, size);
+                model.addAttribute("books", results.getContent());
+                model.addAttribute("searchPage", results);
                 model.addAttribute("searchKeyword", keyword);
-                System.out.println("Поиск по: '" + keyword + "' - найдено: " + books.size());
+                log.debug("Поиск по: '{}' - найдено: {}", keyword, results.getTotalElements());
             } else {
-                books = bookService.getAllBooks();
+                model.addAttribute("books", bookService.getAllBooks());
             }
 
-            model.addAttribute("books", books);
             model.addAttribute("pageTitle", "Результаты поиска");
 
         } catch (Exception e) {
-            System.err.println("Ошибка поиска: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Ошибка поиска", e);
             model.addAttribute("errorMessage", "Ошибка поиска: " + e.getMessage());
             model.addAttribute("books", List.of());
         }
@@ -1,50 +1,65 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.dto.LoanBatchItem;
+import com.library.library_system.dto.LoanCheckoutBatch;
+import com.library.library_system.dto.LoanCounts;
+import com.library.library_system.dto.LoanListItem;
+import com.library.library_system.dto.LoanPage;
+import com.library.library_system.entity.Book;
 import com.library.library_system.entity.BookLoan;
+import com.library.library_system.entity.Librarian;
+import com.library.library_system.entity.Reader;
 import com.library.library_system.service.BookLoanService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * Контроллер для управления выдачами книг.
  */
+@Slf4j
 @Controller
 @RequestMapping("/loans")
 public class BookLoanController {
 
+    /**
+     * Страница выдач выводит книгу, читателя и библиотекаря выдачи.
+     */
+    private static final Class<?>[] LOAN_PAGE_TYPES = {BookLoan.class, Book.class, Reader.class, Librarian.class};
+
+    private static final String CONCURRENT_CHANGE = "Книга или читатель были изменены одновременно, повторите попытку";
+
     @Autowired
     private BookLoanService bookLoanService;
 
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private PageEtags pageEtags;
+
     /**
      * Список всех выдач.
      */
     @GetMapping
-    public String listLoans(Model model) {
-        try {
-            List<BookLoan> loans = bookLoanService.getAllLoans();
-            List<BookLoan> activeLoans = bookLoanService.getActiveLoans();
-            List<BookLoan> overdueLoans = bookLoanService.getOverdueLoans();
-
-            model.addAttribute("loans", loans);
-            model.addAttribute("activeLoans", activeLoans);
-            model.addAttribute("overdueLoans", overdueLoans);
-            model.addAttribute("today", LocalDate.now());
-
-            return "loans/list";
-        } catch (Exception e) {
-            model.addAttribute("errorMessage", "Ошибка загрузки выдач: " + e.getMessage());
-            model.addAttribute("loans", List.of());
-            model.addAttribute("activeLoans", List.of());
-            model.addAttribute("overdueLoans", List.of());
-            model.addAttribute("today", LocalDate.now());
-            return "loans/list";
-        }
+    public String listLoans(@RequestParam(value = "afterDate", required = false)
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+                            @RequestParam(value = "afterId", required = false) Long afterId,
+                            @RequestParam(value = "size", defaultValue = "" + BookLoanService.DEFAULT_PAGE_SIZE) int size,
+                            ServletWebRequest request, Model model) {
+        return showLoansPage("all", "/loans", afterDate, afterId, size, request, model);
     }
 
     /**
@@ -54,10 +69,7 @@ public class BookLoanController {
     public String showCreateForm(Model model) {
         try {
             model.addAttribute("loan", new BookLoan());
-            model.addAttribute("books", bookLoanService.getAllBooks());
-            model.addAttribute("readers", bookLoanService.getAllReaders());
-            model.addAttribute("librarians", bookLoanService.getAllLibrarians());
-            model.addAttribute("defaultDueDate", LocalDate.now().plusDays(14));
+            model.addAttribute("defaultDueDate", LocalDate.now().plusDays(BookLoanService.DEFAULT_LOAN_DAYS));
 
             return "loans/form";
         } catch (Exception e) {
@@ -101,6 +113,72 @@ public class BookLoanController {
         return "redirect:/loans";
     }
 
+    /**
+     * Пакетный возврат для станции сканирования: JSON-массив ID выдач.
+     * Все выдачи возвращаются в одной транзакции; в ответе - результат по каждой.
+     * Слишком много позиций - 400 с описанием; база перегружена - 503 (DatabaseBusyException),
+     * станция может повторить пакет. Прочие ошибки не показываются клиенту.
+     */
+    @PostMapping("/return-batch")
+    @ResponseBody
+    public ResponseEntity<?> returnBatch(@RequestBody List<Long> loanIds) {
+        try {
+            return ResponseEntity.ok(bookLoanService.returnBooks(loanIds));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Пакетная выдача: библиотекарь, срок возврата и пары (книга, читатель) в JSON.
+     * Недоступные книги и ненайденные читатели отклоняются по отдельности,
+     * остальные пары выдаются в одной транзакции.
+     * Неверный пакет (слишком много позиций, нет библиотекаря, срок в прошлом) - 400;
+     * книга или читатель изменены одновременно - 409, база перегружена - 503:
+     * в обоих случаях пакет можно повторить.
+     */
+    @PostMapping("/checkout-batch")
+    @ResponseBody
+    public ResponseEntity<?> checkoutBatch(@RequestBody LoanCheckoutBatch batch) {
+        try {
+            return ResponseEntity.ok(bookLoanService.checkoutBooks(batch));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, CONCURRENT_CHANGE);
+        }
+    }
+
+    /**
+     * Выдача по штрихкодам для сканера на стойке: номер книги и номер читательского билета.
+     * 200 - книга выдана, 404 - номер не найден, 409 - книга уже выдана;
+     * в теле - результат с ID выдачи или причиной отказа.
+     * Нет библиотекаря - 400; книга или читатель изменены одновременным сканированием - 409,
+     * база перегружена - 503: сканирование можно повторить.
+     * @param dueDate срок возврата (по умолчанию через BookLoanService.DEFAULT_LOAN_DAYS дней)
+     */
+    @PostMapping("/scan")
+    @ResponseBody
+    public ResponseEntity<?> checkoutByScan(@RequestParam("bookNumber") String bookNumber,
+                                            @RequestParam("ticketNumber") String ticketNumber,
+                                            @RequestParam("librarianId") Long librarianId,
+                                            @RequestParam(value = "dueDate", required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate) {
+        try {
+            LoanBatchItem result = bookLoanService.checkoutByNumbers(bookNumber, ticketNumber, librarianId, dueDate);
+            HttpStatus status = switch (result.getStatus()) {
+                case CHECKED_OUT -> HttpStatus.OK;
+                case BOOK_UNAVAILABLE -> HttpStatus.CONFLICT;
+                default -> HttpStatus.NOT_FOUND;
+            };
+            return ResponseEntity.status(status).body(result);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, CONCURRENT_CHANGE);
+        }
+    }
+
     /**
      * Удаление выдачи.
      * @param id ID выдачи для удаления
@@ -122,34 +200,30 @@ public class BookLoanController {
      */
     @GetMapping("/search")
     public String searchLoans(@RequestParam(value = "keyword", required = false) String keyword,
+                              @RequestParam(value = "page", defaultValue = "0") int page,
+                              @RequestParam(value = "size", defaultValue = "" + BookLoanService.DEFAULT_PAGE_SIZE) int size,
                               Model model) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return "redirect:/loans";
+        }
+
         try {
-            List<BookLoan> loans;
-            List<BookLoan> activeLoans = bookLoanService.getActiveLoans();
-            List<BookLoan> overdueLoans = bookLoanService.getOverdueLoans();
-
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                loans = bookLoanService.searchLoans(keyword);
-                model.addAttribute("searchKeyword", keyword);
-                System.out.println("Поиск выдач по запросу: '" + keyword + "' - найдено: " + loans.size());
-            } else {
-                loans = bookLoanService.getAllLoans();
-            }
+            Page<LoanListItem> results = bookLoanService.searchLoans(keyword, page, size);
+            log.debug("Поиск выдач по запросу: '{}' - найдено: {}", keyword, results.getTotalElements());
 
-            model.addAttribute("loans", loans);
-            model.addAttribute("activeLoans", activeLoans);
-            model.addAttribute("overdueLoans", overdueLoans);
+            model.addAttribute("loans", results.getContent());
+            model.addAttribute("searchPage", results);
+            model.addAttribute("searchKeyword", keyword);
+            addLoanCounts(model);
             model.addAttribute("today", LocalDate.now());
 
             return "loans/list";
 
         } catch (Exception e) {
-            System.err.println("Ошибка поиска выдач: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Ошибка поиска выдач", e);
             model.addAttribute("errorMessage", "Ошибка поиска: " + e.getMessage());
-            model.addAttribute("loans", bookLoanService.getAllLoans());
-            model.addAttribute("activeLoans", bookLoanService.getActiveLoans());
-            model.addAttribute("overdueLoans", bookLoanService.getOverdueLoans());
+            model.addAttribute("loans", List.of());
+            model.addAttribute("searchKeyword", keyword);
             model.addAttribute("today", LocalDate.now());
             return "loans/list";
         }
@@ -159,82 +233,86 @@ public class BookLoanController {
      * Список активных выдач.
      */
     @GetMapping("/active")
-    public String getActiveLoans(Model model) {
-        try {
-            List<BookLoan> activeLoans = bookLoanService.getActiveLoans();
-            model.addAttribute("loans", activeLoans);
-            model.addAttribute("activeLoans", activeLoans);
-            model.addAttribute("overdueLoans", bookLoanService.getOverdueLoans());
-            model.addAttribute("today", LocalDate.now());
-            model.addAttribute("activeFilter", "active");
-
-            return "loans/list";
-        } catch (Exception e) {
-            model.addAttribute("errorMessage", "Ошибка загрузки активных выдач: " + e.getMessage());
-            model.addAttribute("loans", List.of());
-            model.addAttribute("activeLoans", List.of());
-            model.addAttribute("overdueLoans", List.of());
-            model.addAttribute("today", LocalDate.now());
-            return "loans/list";
-        }
+    public String getActiveLoans(@RequestParam(value = "afterDate", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+                                 @RequestParam(value = "afterId", required = false) Long afterId,
+                                 @RequestParam(value = "size", defaultValue = "" + BookLoanService.DEFAULT_PAGE_SIZE) int size,
+                                 ServletWebRequest request, Model model) {
+        return showLoansPage("active", "/loans/active", afterDate, afterId, size, request, model);
     }
 
     /**
      * Список просроченных выдач.
      */
     @GetMapping("/overdue")
-    public String getOverdueLoans(Model model) {
-        try {
-            List<BookLoan> overdueLoans = bookLoanService.getOverdueLoans();
-            model.addAttribute("loans", overdueLoans);
-            model.addAttribute("activeLoans", bookLoanService.getActiveLoans());
-            model.addAttribute("overdueLoans", overdueLoans);
-            model.addAttribute("today", LocalDate.now());
-            model.addAttribute("activeFilter", "overdue");
-
-            return "loans/list";
-        } catch (Exception e) {
-            model.addAttribute("errorMessage", "Ошибка загрузки просроченных выдач: " + e.getMessage());
-            model.addAttribute("loans", List.of());
-            model.addAttribute("activeLoans", List.of());
-            model.addAttribute("overdueLoans", List.of());
-            model.addAttribute("today", LocalDate.now());
-            return "loans/list";
-        }
+    public String getOverdueLoans(@RequestParam(value = "afterDate", required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+                                  @RequestParam(value = "afterId", required = false) Long afterId,
+                                  @RequestParam(value = "size", defaultValue = "" + BookLoanService.DEFAULT_PAGE_SIZE) int size,
+                                  ServletWebRequest request, Model model) {
+        return showLoansPage("overdue", "/loans/overdue", afterDate, afterId, size, request, model);
     }
 
     /**
      * Список возвращенных книг.
      */
     @GetMapping("/returned")
-    public String getReturnedLoans(Model model) {
-        try {
-            List<BookLoan> allLoans = bookLoanService.getAllLoans();
-            List<BookLoan> returnedLoans = new ArrayList<>();
-
-            for (BookLoan loan : allLoans) {
-                if (loan.getReturnDate() != null) {
-                    returnedLoans.add(loan);
-                }
-            }
-
-            int returnedCount = returnedLoans.size();
-
-            model.addAttribute("loans", returnedLoans);
-            model.addAttribute("activeLoans", bookLoanService.getActiveLoans());
-            model.addAttribute("overdueLoans", bookLoanService.getOverdueLoans());
-            model.addAttribute("today", LocalDate.now());
-            model.addAttribute("activeFilter", "returned");
-            model.addAttribute("returnedCount", returnedCount);
+    public String getReturnedLoans(@RequestParam(value = "afterDate", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterDate,
+                                   @RequestParam(value = "afterId", required = false) Long afterId,
+                                   @RequestParam(value = "size", defaultValue = "" + BookLoanService.DEFAULT_PAGE_SIZE) int size,
+                                   ServletWebRequest request, Model model) {
+        return showLoansPage("returned", "/loans/returned", afterDate, afterId, size, request, model);
+    }
 
-            return "loans/list";
+    /**
+     * Заполняет модель страницей выдач и счетчиками для вкладок.
+     * Таблица берется из кэша фрагментов, пока данные не изменились; статус выдачи
+     * зависит от текущей даты, поэтому дата входит в ключ кэша и в ETag.
+     * Если страница у клиента актуальна, отвечает 304 без обращения к базе.
+     * @param filter фильтр выдач
+     * @param pageUrl адрес вкладки для ссылок навигации
+     */
+    private String showLoansPage(String filter, String pageUrl, LocalDate afterDate, Long afterId,
+                                 int size, ServletWebRequest request, Model model) {
+        LocalDate today = LocalDate.now();
+        if (pageEtags.notModified(request, "loans-" + today, LOAN_PAGE_TYPES)) {
+            return null;
+        }
+        model.addAttribute("activeFilter", filter);
+        model.addAttribute("pageUrl", pageUrl);
+        model.addAttribute("today", today);
+        try {
+            String key = filter + "|" + afterDate + "|" + afterId + "|" + size + "|" + today;
+            fragmentCache.render(model, "loans/list", key, LOAN_PAGE_TYPES, () -> {
+                LoanPage page = bookLoanService.getLoansPage(filter, afterDate, afterId, size);
+                model.addAttribute("page", page);
+                model.addAttribute("loans", page.getContent());
+            }, "table");
+            addLoanCounts(model);
+            pageEtags.addEtag(request);
         } catch (Exception e) {
-            model.addAttribute("errorMessage", "Ошибка загрузки возвращенных выдач: " + e.getMessage());
+            model.addAttribute("errorMessage", "Ошибка загрузки выдач: " + e.getMessage());
             model.addAttribute("loans", List.of());
-            model.addAttribute("activeLoans", List.of());
-            model.addAttribute("overdueLoans", List.of());
-            model.addAttribute("today", LocalDate.now());
-            return "loans/list";
         }
+        return "loans/list";
+    }
+
+    /**
+     * Добавляет в модель количество выдач по вкладкам.
+     */
+    private void addLoanCounts(Model model) {
+        LoanCounts counts = bookLoanService.getLoanCounts();
+        model.addAttribute("totalCount", counts.getTotal());
+        model.addAttribute("activeCount", counts.getActive());
+        model.addAttribute("overdueCount", counts.getOverdue());
+        model.addAttribute("returnedCount", counts.getReturned());
+    }
+
+    /**
+     * Ответ JSON-методов с описанием ошибки.
+     */
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
     }
 }
\ No newline at end of file
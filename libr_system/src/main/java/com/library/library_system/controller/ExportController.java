@@ -0,0 +1,66 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Контроллер выгрузки данных в CSV.
+ * Ответ пишется асинхронно (StreamingResponseBody): поток Tomcat освобождается
+ * сразу, строки передаются клиенту по мере чтения из базы.
+ */
+@Controller
+@RequestMapping("/export")
+public class ExportController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ExportService exportService;
+
+    /**
+     * Вся история выдач.
+     * @param gzip сжать файл (loans-ДАТА.csv.gz)
+     */
+    @GetMapping("/loans.csv")
+    public ResponseEntity<StreamingResponseBody> exportLoans(@RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        return csv("loans", gzip, exportService::exportLoans);
+    }
+
+    /**
+     * Каталог книг.
+     * @param gzip сжать файл (books-ДАТА.csv.gz)
+     */
+    @GetMapping("/books.csv")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        return csv("books", gzip, exportService::exportBooks);
+    }
+
+    private ResponseEntity<StreamingResponseBody> csv(String name, boolean gzip, StreamingResponseBody export) {
+        String fileName = name + "-" + LocalDate.now() + (gzip ? ".csv.gz" : ".csv");
+        StreamingResponseBody body = !gzip ? export : out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            export.writeTo(compressed);
+            compressed.finish();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(gzip ? APPLICATION_GZIP : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
\ No newline at end of file
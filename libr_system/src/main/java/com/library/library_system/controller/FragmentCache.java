@@ -0,0 +1,136 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.DataVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.web.IWebExchange;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кэш отрисованных фрагментов страниц списков (статистика, таблица).
+ * Фрагмент - элемент шаблона с th:fragment; он отрисовывается отдельно
+ * и вставляется в страницу через th:utext из атрибута модели MODEL_ATTRIBUTE.
+ * Запись кэша действительна, пока не изменилась версия данных (DataVersion)
+ * типов сущностей, которые выводит фрагмент: при попадании данные не загружаются
+ * и HTML не отрисовывается заново.
+ * Если кэш шаблонов Thymeleaf выключен (профиль dev), фрагменты отрисовываются
+ * каждый раз, чтобы правки шаблонов были видны сразу.
+ */
+@Slf4j
+@Component
+public class FragmentCache {
+
+    public static final String MODEL_ATTRIBUTE = "cachedFragments";
+
+    public static final String REQUESTS_COUNTER = "library.fragment.cache.requests";
+
+    private static final int MAX_ENTRIES = 100;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @Autowired
+    private ServletContext servletContext;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.thymeleaf.cache:true}")
+    private boolean enabled;
+
+    private JakartaServletWebApplication webApplication;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private record Entry(long version, Map<String, String> fragments) {
+    }
+
+    /**
+     * Добавляет в модель HTML фрагментов шаблона: из кэша или отрисованный заново.
+     * @param model модель страницы
+     * @param template имя шаблона
+     * @param key параметры страницы, от которых зависят фрагменты (фильтр, курсор, дата)
+     * @param types типы сущностей, данные которых выводят фрагменты
+     * @param loader заполняет модель данными фрагментов; вызывается только при промахе
+     * @param fragments имена фрагментов
+     */
+    public void render(Model model, String template, String key, Class<?>[] types,
+                       Runnable loader, String... fragments) {
+        String cacheKey = template + "|" + key;
+        long version = dataVersion.current(types);
+
+        Entry entry = enabled ? get(cacheKey) : null;
+        boolean hit = entry != null && entry.version() == version;
+        Counter.builder(REQUESTS_COUNTER)
+                .description("Запросы фрагментов страниц к кэшу")
+                .tags("template", template, "result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+        if (hit) {
+            model.addAttribute(MODEL_ATTRIBUTE, entry.fragments());
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        loader.run();
+        WebContext context = new WebContext(webExchange(), LocaleContextHolder.getLocale(), model.asMap());
+        Map<String, String> html = new HashMap<>();
+        for (String fragment : fragments) {
+            html.put(fragment, templateEngine.process(
+                    new TemplateSpec(template, Set.of(fragment), TemplateMode.HTML, null), context));
+        }
+        if (enabled) {
+            put(cacheKey, new Entry(version, html));
+        }
+        log.debug("Фрагменты {} ({}) отрисованы за {} мс, версия данных {}",
+                template, key, System.currentTimeMillis() - start, version);
+        model.addAttribute(MODEL_ATTRIBUTE, html);
+    }
+
+    private synchronized Entry get(String cacheKey) {
+        return entries.get(cacheKey);
+    }
+
+    private synchronized void put(String cacheKey, Entry entry) {
+        Entry current = entries.get(cacheKey);
+        if (current == null || current.version() <= entry.version()) {
+            entries.put(cacheKey, entry);
+        }
+    }
+
+    /**
+     * Текущий HTTP-запрос для Thymeleaf: нужен для ссылок @{...} относительно контекста.
+     */
+    private IWebExchange webExchange() {
+        if (webApplication == null) {
+            webApplication = JakartaServletWebApplication.buildApplication(servletContext);
+        }
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        return webApplication.buildExchange(attributes.getRequest(), attributes.getResponse());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.dto.ImportReport;
+import com.library.library_system.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+
+/**
+ * REST-контроллер массового импорта.
+ * Тело запроса - CSV (text/csv) или JSON-массив (application/json);
+ * оно читается потоком, без загрузки файла в память.
+ * Пример: curl --data-binary @books.csv -H 'Content-Type: text/csv' http://localhost:8080/api/import/books
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    /**
+     * Импортирует книги, читателей или историю выдач.
+     * @param type books, readers или loans
+     */
+    @PostMapping("/{type}")
+    public ImportReport importData(@PathVariable String type, HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        String format = contentType != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType)) ? "json" : "csv";
+        try {
+            return importService.importData(type, format, request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -1,15 +1,18 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.dto.LibrarianListItem;
 import com.library.library_system.entity.Librarian;
 import com.library.library_system.service.LibrarianService;
+import com.library.library_system.service.SearchQuery;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import java.util.List;
 
 /**
  * Контроллер для управления библиотекарями.
@@ -18,16 +21,33 @@ import java.util.List;
 @RequestMapping("/librarians")
 public class LibrarianController {
 
+    /**
+     * Типы сущностей, данные которых выводит список.
+     */
+    private static final Class<?>[] LIST_TYPES = {Librarian.class};
+
     @Autowired
     private LibrarianService librarianService;
 
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private PageEtags pageEtags;
+
     /**
      * Список всех библиотекарей.
+     * Статистика и таблица берутся из кэша фрагментов, пока библиотекари не изменились;
+     * если не изменилась и страница у клиента, отвечает 304 без обращения к базе.
      */
     @GetMapping
-    public String listLibrarians(Model model) {
-        List<Librarian> librarians = librarianService.getAllLibrarians();
-        model.addAttribute("librarians", librarians);
+    public String listLibrarians(ServletWebRequest request, Model model) {
+        if (pageEtags.notModified(request, "librarians", LIST_TYPES)) {
+            return null;
+        }
+        fragmentCache.render(model, "librarians/list", "", LIST_TYPES,
+                () -> model.addAttribute("librarians", librarianService.getAllLibrarians()), "stats", "table");
+        pageEtags.addEtag(request);
         return "librarians/list";
     }
 
@@ -122,9 +142,17 @@ public class LibrarianController {
      * @param keyword ключевое слово для поиска
      */
     @GetMapping("/search")
-    public String searchLibrarians(@RequestParam("keyword") String keyword, Model model) {
-        List<Librarian> librarians = librarianService.searchLibrarians(keyword);
-        model.addAttribute("librarians", librarians);
+    public String searchLibrarians(@RequestParam(value = "keyword", required = false) String keyword,
+                                   @RequestParam(value = "page", defaultValue = "0") int page,
+                                   @RequestParam(value = "size", defaultValue = "" + SearchQuery.DEFAULT_PAGE_SIZE) int size,
+                                   Model model) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return "redirect:/librarians";
+        }
+
+        Page<LibrarianListItem> librarians = librarianService.searchLibrarians(keyword, page, size);
+        model.addAttribute("librarians", librarians.getContent());
+        model.addAttribute("searchPage", librarians);
         model.addAttribute("searchKeyword", keyword);
         return "librarians/list";
     }
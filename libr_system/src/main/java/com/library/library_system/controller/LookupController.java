@@ -0,0 +1,54 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.dto.LookupItem;
+import com.library.library_system.service.LookupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.List;
+
+/**
+ * REST-контроллер подсказок для формы выдачи книги.
+ */
+@RestController
+@RequestMapping("/api")
+public class LookupController {
+
+    @Autowired
+    private LookupService lookupService;
+
+    /**
+     * Подсказки по книгам, доступным для выдачи.
+     * @param query начало названия, автора или номера книги
+     * @param limit максимальное количество результатов
+     */
+    @GetMapping("/books/lookup")
+    public List<LookupItem> lookupBooks(@RequestParam(value = "q", defaultValue = "") String query,
+                                        @RequestParam(value = "limit", defaultValue = "" + LookupService.DEFAULT_LIMIT) int limit) {
+        return lookupService.lookupAvailableBooks(query, limit);
+    }
+
+    /**
+     * Подсказки по читателям.
+     * @param query начало номера билета или ФИО
+     * @param limit максимальное количество результатов
+     */
+    @GetMapping("/readers/lookup")
+    public List<LookupItem> lookupReaders(@RequestParam(value = "q", defaultValue = "") String query,
+                                          @RequestParam(value = "limit", defaultValue = "" + LookupService.DEFAULT_LIMIT) int limit) {
+        return lookupService.lookupReaders(query, limit);
+    }
+
+    /**
+     * Подсказки по библиотекарям.
+     * @param query начало номера или ФИО
+     * @param limit максимальное количество результатов
+     */
+    @GetMapping("/librarians/lookup")
+    public List<LookupItem> lookupLibrarians(@RequestParam(value = "q", defaultValue = "") String query,
+                                             @RequestParam(value = "limit", defaultValue = "" + LookupService.DEFAULT_LIMIT) int limit) {
+        return lookupService.lookupLibrarians(query, limit);
+    }
+}
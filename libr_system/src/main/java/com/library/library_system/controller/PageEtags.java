@@ -0,0 +1,71 @@
+package com.library.library_system.controller;
+
+import com.library.library_system.service.DataVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+/**
+ * Условные GET-запросы страниц списков.
+ * ETag страницы строится из версий данных, которые она выводит (DataVersion),
+ * и метки запуска приложения: после перезапуска версии начинаются заново, а разметка
+ * шаблонов могла измениться. Проверка If-None-Match использует только счетчики в памяти,
+ * поэтому ответ 304 не обращается к базе и не отрисовывает шаблон.
+ * ETag слабый (W/): ответ со строгим ETag Tomcat не сжимает, так как сжатое и исходное
+ * содержимое побайтно различаются; If-None-Match все равно сравнивается без учета W/.
+ * Cache-Control: no-cache - браузер хранит страницу, но проверяет ее при каждом показе.
+ * ETag отдается только страницей, которая зависит лишь от данных: страница с сообщением
+ * после перенаправления (flash-атрибуты) и страница с ошибкой загрузки его не получают,
+ * иначе браузер показывал бы их из кэша или не показывал бы сообщение.
+ */
+@Component
+public class PageEtags {
+
+    private static final String ETAG_ATTRIBUTE = PageEtags.class.getName() + ".etag";
+
+    private final String startTag = Long.toString(System.currentTimeMillis(), 36);
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    /**
+     * Проверяет, что у клиента актуальная версия страницы.
+     * Cache-Control добавляется в ответ в любом случае, ETag - в ответ 304
+     * или после успешной подготовки страницы (addEtag).
+     * @param request запрос
+     * @param page имя страницы и параметры, от которых зависит разметка помимо данных (например дата)
+     * @param types типы сущностей, данные которых выводит страница
+     * @return true - ответ 304 уже подготовлен, контроллер должен вернуть null
+     */
+    public boolean notModified(ServletWebRequest request, String page, Class<?>... types) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        }
+        if (!CollectionUtils.isEmpty(RequestContextUtils.getInputFlashMap(request.getRequest()))) {
+            return false;
+        }
+        String etag = "W/\"" + page + "-" + startTag + "-" + dataVersion.current(types) + "\"";
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag.substring(2))) {
+            return request.checkNotModified(etag);
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, etag, RequestAttributes.SCOPE_REQUEST);
+        return false;
+    }
+
+    /**
+     * Добавляет в ответ ETag, вычисленный в notModified.
+     * Вызывается, когда страница подготовлена без ошибок.
+     */
+    public void addEtag(ServletWebRequest request) {
+        Object etag = request.getAttribute(ETAG_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (etag != null && request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.ETAG, etag.toString());
+        }
+    }
+}
\ No newline at end of file
@@ -1,15 +1,19 @@
 package com.library.library_system.controller;
 
+import com.library.library_system.dto.ReaderListItem;
 import com.library.library_system.entity.Reader;
+import com.library.library_system.service.DuplicateValueException;
 import com.library.library_system.service.ReaderService;
+import com.library.library_system.service.SearchQuery;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import java.util.List;
 
 /**
  * Контроллер для управления читателями.
@@ -18,16 +22,33 @@ import java.util.List;
 @RequestMapping("/readers")
 public class ReaderController {
 
+    /**
+     * Типы сущностей, данные которых выводит список.
+     */
+    private static final Class<?>[] LIST_TYPES = {Reader.class};
+
     @Autowired
     private ReaderService readerService;
 
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    @Autowired
+    private PageEtags pageEtags;
+
     /**
      * Список всех читателей.
+     * Статистика и таблица берутся из кэша фрагментов, пока читатели не изменились;
+     * если не изменилась и страница у клиента, отвечает 304 без обращения к базе.
      */
     @GetMapping
-    public String listReaders(Model model) {
-        List<Reader> readers = readerService.getAllReaders();
-        model.addAttribute("readers", readers);
+    public String listReaders(ServletWebRequest request, Model model) {
+        if (pageEtags.notModified(request, "readers", LIST_TYPES)) {
+            return null;
+        }
+        fragmentCache.render(model, "readers/list", "", LIST_TYPES,
+                () -> model.addAttribute("readers", readerService.getAllReaders()), "stats", "table");
+        pageEtags.addEtag(request);
         return "readers/list";
     }
 
@@ -53,19 +74,12 @@ public class ReaderController {
         }
 
         try {
-            if (readerService.existsByTicketNumber(reader.getTicketNumber())) {
-                result.rejectValue("ticketNumber", "error.reader", "Номер читательского билета уже существует");
-                return "readers/form";
-            }
-
-            if (readerService.existsByPhoneNumber(reader.getPhoneNumber())) {
-                result.rejectValue("phoneNumber", "error.reader", "Номер телефона уже используется другим читателем");
-                return "readers/form";
-            }
-
             readerService.saveReader(reader);
             redirectAttributes.addFlashAttribute("successMessage", "Читатель добавлен!");
             return "redirect:/readers";
+        } catch (DuplicateValueException e) {
+            result.rejectValue(e.getField(), "error.reader", e.getMessage());
+            return "readers/form";
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка: " + e.getMessage());
             return "redirect:/readers";
@@ -101,21 +115,13 @@ public class ReaderController {
         }
 
         try {
-            Reader existingByTicket = readerService.findByTicketNumber(reader.getTicketNumber());
-            if (existingByTicket != null && !existingByTicket.getId().equals(id)) {
-                result.rejectValue("ticketNumber", "error.reader", "Номер читательского билета уже используется другим читателем");
-                return "readers/form";
-            }
-
-            if (readerService.isPhoneNumberUsedByOtherReader(id, reader.getPhoneNumber())) {
-                result.rejectValue("phoneNumber", "error.reader", "Номер телефона уже используется другим читателем");
-                return "readers/form";
-            }
-
             reader.setId(id);
             readerService.saveReader(reader);
             redirectAttributes.addFlashAttribute("successMessage", "Читатель обновлен!");
             return "redirect:/readers";
+        } catch (DuplicateValueException e) {
+            result.rejectValue(e.getField(), "error.reader", e.getMessage());
+            return "readers/form";
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка: " + e.getMessage());
             return "redirect:/readers";
@@ -136,4 +142,24 @@ public class ReaderController {
         }
         return "redirect:/readers";
     }
+
+    /**
+     * Поиск читателей по ключевому слову.
+     * @param keyword ключевое слово для поиска
+     */
+    @GetMapping("/search")
+    public String searchReaders(@RequestParam(value = "keyword", required = false) String keyword,
+                                @RequestParam(value = "page", defaultValue = "0") int page,
+                                @RequestParam(value = "size", defaultValue = "" + SearchQuery.DEFAULT_PAGE_SIZE) int size,
+                                Model model) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return "redirect:/readers";
+        }
+
+        Page<ReaderListItem> readers = readerService.searchReaders(keyword, page, size);
+        model.addAttribute("readers", readers.getContent());
+        model.addAttribute("searchPage", readers);
+        model.addAttribute("searchKeyword", keyword);
+        return "readers/list";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Строка списка книг: только поля, которые выводит books/list.
+ */
+@Getter
+@AllArgsConstructor
+public class BookListItem {
+
+    private final Long id;
+
+    private final String bookNumber;
+
+    private final String title;
+
+    private final String author;
+
+    private final Integer publicationYear;
+
+    private final Long currentLoanId;
+
+    /**
+     * Проверяет, доступна ли книга для выдачи.
+     */
+    public boolean isAvailable() {
+        return currentLoanId == null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Ошибка импорта: номер строки данных (с единицы, без заголовка) и причина.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportError {
+
+    private final long row;
+
+    private final String message;
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог импорта: количество обработанных, загруженных, пропущенных
+ * (уже существующих) и ошибочных строк и ошибки по строкам.
+ * Хранится не больше MAX_ERRORS ошибок, остальные только считаются.
+ */
+@Getter
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 1000;
+
+    private final String type;
+
+    private long processed;
+
+    private long imported;
+
+    private long skipped;
+
+    private long failed;
+
+    private final List<ImportError> errors = new ArrayList<>();
+
+    /**
+     * Причина, по которой чтение данных прервано; null - данные прочитаны полностью.
+     */
+    private String errorMessage;
+
+    private long durationMs;
+
+    public ImportReport(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Учитывает очередную строку и возвращает ее номер.
+     */
+    public long nextRow() {
+        return ++processed;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addSkipped(long row, String message) {
+        skipped++;
+        addError(row, message);
+    }
+
+    public void addFailed(long row, String message) {
+        failed++;
+        addError(row, message);
+    }
+
+    public void abort(String message) {
+        errorMessage = message;
+    }
+
+    public void finish(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    private void addError(long row, String message) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ImportError(row, message));
+        }
+    }
+}
\ No newline at end of file
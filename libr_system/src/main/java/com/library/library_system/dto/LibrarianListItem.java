@@ -0,0 +1,19 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Строка списка библиотекарей: только поля, которые выводит librarians/list.
+ */
+@Getter
+@AllArgsConstructor
+public class LibrarianListItem {
+
+    private final Long id;
+
+    private final String librarianNumber;
+
+    private final String fullName;
+
+    private final String position;
+}
\ No newline at end of file
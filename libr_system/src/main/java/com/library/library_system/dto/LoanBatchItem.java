@@ -0,0 +1,38 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Результат одной позиции пакетной выдачи или возврата и выдачи по штрихкодам.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanBatchItem {
+
+    public enum Status {
+        CHECKED_OUT,
+        RETURNED,
+        LOAN_NOT_FOUND,
+        ALREADY_RETURNED,
+        BOOK_NOT_FOUND,
+        READER_NOT_FOUND,
+        BOOK_UNAVAILABLE
+    }
+
+    private final Long loanId;
+
+    private final Long bookId;
+
+    private final Long readerId;
+
+    private final Status status;
+
+    private final String message;
+
+    /**
+     * Позиция выполнена (книга выдана или возвращена).
+     */
+    public boolean isSuccess() {
+        return status == Status.CHECKED_OUT || status == Status.RETURNED;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.util.List;
+
+/**
+ * Итог пакетной выдачи или возврата: результаты позиций в порядке запроса
+ * и количество выполненных и отклоненных позиций.
+ */
+@Getter
+public class LoanBatchResult {
+
+    private final List<LoanBatchItem> items;
+
+    private final int succeeded;
+
+    private final int failed;
+
+    private final long durationMs;
+
+    public LoanBatchResult(List<LoanBatchItem> items, long durationMs) {
+        this.items = items;
+        this.succeeded = (int) items.stream().filter(LoanBatchItem::isSuccess).count();
+        this.failed = items.size() - succeeded;
+        this.durationMs = durationMs;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная выдача: пары (книга, читатель), оформляемые одним библиотекарем
+ * с общим сроком возврата.
+ */
+@Data
+@NoArgsConstructor
+public class LoanCheckoutBatch {
+
+    private Long librarianId;
+
+    /**
+     * Срок возврата; если не указан - через BookLoanService.DEFAULT_LOAN_DAYS дней.
+     */
+    private LocalDate dueDate;
+
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private Long bookId;
+
+        private Long readerId;
+    }
+}
\ No newline at end of file
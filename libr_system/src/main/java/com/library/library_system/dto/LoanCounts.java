@@ -0,0 +1,38 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Количество выдач по вкладкам списка: все, активные, просроченные и возвращенные.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanCounts {
+
+    public static final LoanCounts EMPTY = new LoanCounts(0, 0, 0, 0);
+
+    private final long total;
+
+    private final long active;
+
+    private final long overdue;
+
+    private final long returned;
+
+    /**
+     * Изменение счетчиков при переходе выдачи из одного состояния в другое.
+     * @param before состояние до изменения (null для новой выдачи)
+     * @param after состояние после изменения (null для удаленной выдачи)
+     */
+    public static LoanCounts delta(LoanCounts before, LoanCounts after) {
+        LoanCounts from = before != null ? before : EMPTY;
+        LoanCounts to = after != null ? after : EMPTY;
+        return new LoanCounts(to.total - from.total, to.active - from.active,
+                to.overdue - from.overdue, to.returned - from.returned);
+    }
+
+    public LoanCounts plus(LoanCounts other) {
+        return new LoanCounts(total + other.total, active + other.active,
+                overdue + other.overdue, returned + other.returned);
+    }
+}
@@ -0,0 +1,27 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.time.LocalDate;
+
+/**
+ * Строка списка выдач: даты выдачи и названия книги и читателя
+ * без загрузки связанных сущностей.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanListItem {
+
+    private final Long id;
+
+    private final LocalDate loanDate;
+
+    private final LocalDate dueDate;
+
+    private final LocalDate returnDate;
+
+    private final String bookTitle;
+
+    private final String bookAuthor;
+
+    private final String readerFullName;
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Страница выдач для постраничного вывода по ключу (loan_date, loan_id).
+ * Курсор следующей страницы - дата и ID последней выдачи на текущей странице
+ * (для просроченных выдач - срок возврата, для остальных - дата выдачи).
+ */
+@Getter
+@AllArgsConstructor
+public class LoanPage {
+
+    private final List<LoanListItem> content;
+
+    private final boolean first;
+
+    private final boolean hasNext;
+
+    private final LocalDate nextLoanDate;
+
+    private final Long nextLoanId;
+
+    private final int size;
+}
@@ -0,0 +1,15 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+
+/**
+ * Элемент подсказки для поля выбора: ID сущности и отображаемая подпись.
+ */
+@Getter
+@AllArgsConstructor
+public class LookupItem {
+
+    private final Long id;
+
+    private final String label;
+}
@@ -0,0 +1,22 @@
+package com.library.library_system.dto;
+
+import lombok.*;
+import java.sql.Date;
+
+/**
+ * Строка списка читателей: только поля, которые выводит readers/list.
+ */
+@Getter
+@AllArgsConstructor
+public class ReaderListItem {
+
+    private final Long id;
+
+    private final String ticketNumber;
+
+    private final String fullName;
+
+    private final String phoneNumber;
+
+    private final Date registrationDate;
+}
\ No newline at end of file
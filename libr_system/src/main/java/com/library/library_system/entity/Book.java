@@ -3,19 +3,27 @@ package com.library.library_system.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Сущность книги.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "books")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Book {
 
+    public static final String ID_SEQUENCE = "books_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = IdGeneration.ALLOCATION_SIZE)
     @Column(name = "book_id")
     private Long id;
 
@@ -36,4 +44,23 @@ public class Book {
     @Max(value = 2025, message = "Год должен быть не позже текущего")
     @Column(name = "publication_year", nullable = false)
     private Integer publicationYear;
+
+    /**
+     * ID текущей активной выдачи; null - книга в наличии.
+     * Обновляется в BookLoanService при выдаче и возврате.
+     */
+    @Column(name = "current_loan_id")
+    private Long currentLoanId;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Проверяет, доступна ли книга для выдачи.
+     */
+    public boolean isAvailable() {
+        return currentLoanId == null;
+    }
 }
\ No newline at end of file
@@ -4,36 +4,54 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.FutureOrPresent;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDate;
 
 /**
  * Сущность выдачи книги.
+ * Книга, читатель и библиотекарь загружаются лениво; методы репозитория,
+ * которым нужны книга и читатель, подключают граф BookLoan.bookAndReader.
  */
 @Entity
 @Table(name = "book_loans")
+@NamedEntityGraph(name = BookLoan.BOOK_AND_READER_GRAPH, attributeNodes = {
+        @NamedAttributeNode("book"),
+        @NamedAttributeNode("reader")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class BookLoan {
 
+    public static final String ID_SEQUENCE = "book_loans_seq";
+
+    public static final String BOOK_AND_READER_GRAPH = "BookLoan.bookAndReader";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = IdGeneration.ALLOCATION_SIZE)
     @Column(name = "loan_id")
     private Long id;
 
     @NotNull(message = "Книга обязательна")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
 
     @NotNull(message = "Читатель обязателен")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reader_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Reader reader;
 
     @NotNull(message = "Библиотекарь обязателен")
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "librarian_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Librarian librarian;
 
     @NotNull(message = "Дата выдачи обязательна")
@@ -47,4 +65,12 @@ public class BookLoan {
 
     @Column(name = "return_date")
     private LocalDate returnDate;
+
+    /**
+     * Выдача просрочена. Отмечается ежедневной проверкой OverdueLoanSweeper
+     * и после возврата остается признаком возврата с опозданием.
+     */
+    @ColumnDefault("false")
+    @Column(name = "overdue", nullable = false)
+    private boolean overdue;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.library.library_system.entity;
+
+/**
+ * Генерация ID сущностей из последовательностей базы.
+ * Шаг последовательностей равен ALLOCATION_SIZE: Hibernate получает значение
+ * одним запросом и выдает ID из блока [значение, значение + ALLOCATION_SIZE)
+ * (оптимизатор pooled-lo), поэтому вставки не выполняются по одной ради
+ * получения ключа и группируются в JDBC-пакеты.
+ */
+public final class IdGeneration {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {
+    }
+}
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.library.library_system.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,14 +12,19 @@ import java.util.List;
  * Сущность библиотекаря.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "librarians")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Librarian {
 
+    public static final String ID_SEQUENCE = "librarians_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = IdGeneration.ALLOCATION_SIZE)
     @Column(name = "librarian_id")
     private Long id;
 
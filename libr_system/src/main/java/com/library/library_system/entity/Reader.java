@@ -4,25 +4,40 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import java.sql.Date;
 
 /**
  * Сущность читателя.
  */
 @Entity
-@Table(name = "readers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "readers", uniqueConstraints = {
+        @UniqueConstraint(name = Reader.TICKET_NUMBER_CONSTRAINT, columnNames = "ticket_number"),
+        @UniqueConstraint(name = Reader.PHONE_NUMBER_CONSTRAINT, columnNames = "phone_number")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Reader {
 
+    public static final String ID_SEQUENCE = "readers_seq";
+
+    public static final String TICKET_NUMBER_CONSTRAINT = "uk_readers_ticket_number";
+
+    public static final String PHONE_NUMBER_CONSTRAINT = "uk_readers_phone_number";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = IdGeneration.ALLOCATION_SIZE)
     @Column(name = "reader_id")
     private Long id;
 
     @NotBlank(message = "Номер читательского билета обязателен")
-    @Column(name = "ticket_number", unique = true, nullable = false)
+    @Column(name = "ticket_number", nullable = false)
     private String ticketNumber;
 
     @NotBlank(message = "ФИО обязательно")
@@ -37,4 +52,17 @@ public class Reader {
 
     @Column(name = "registration_date")
     private Date registrationDate;
+
+    /**
+     * Количество невозвращенных книг.
+     * Обновляется в BookLoanService при выдаче и возврате.
+     */
+    @ColumnDefault("0")
+    @Column(name = "active_loan_count", nullable = false)
+    private int activeLoanCount;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
\ No newline at end of file
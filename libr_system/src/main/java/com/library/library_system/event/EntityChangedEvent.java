@@ -0,0 +1,17 @@
+package com.library.library_system.event;
+
+import lombok.*;
+
+/**
+ * Событие изменения сущности (книги, читателя, библиотекаря или выдачи).
+ * Публикуется сервисами после записи; слушатели обновляют производные
+ * структуры в памяти после фиксации транзакции.
+ */
+@Getter
+@AllArgsConstructor
+public class EntityChangedEvent {
+
+    private final Object entity;
+
+    private final boolean deleted;
+}
@@ -0,0 +1,104 @@
+package com.library.library_system.metrics;
+
+import com.library.library_system.dto.LoanPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Метрики сервисов и репозиториев.
+ * Для публичных методов сервисов: время выполнения, число ошибок по типу исключения
+ * и количество возвращенных строк. Для репозиториев только количество строк:
+ * время и ошибки запросов Spring Boot пишет сам в spring.data.repository.invocations.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+    public static final String SERVICE_TIMER = "library.service.invocations";
+
+    public static final String SERVICE_ERRORS = "library.service.errors";
+
+    public static final String SERVICE_RESULTS = "library.service.results";
+
+    public static final String REPOSITORY_RESULTS = "library.repository.results";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("within(com.library.library_system.service..*) && execution(public * *(..))")
+    public Object measureService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String methodName = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            recordResultSize(SERVICE_RESULTS, "class", className, methodName, result);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            Counter.builder(SERVICE_ERRORS)
+                    .description("Ошибки методов сервисов по типу исключения")
+                    .tags("class", className, "method", methodName, "exception", exception)
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(SERVICE_TIMER)
+                    .description("Время выполнения методов сервисов")
+                    .tags("class", className, "method", methodName, "exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Around("target(org.springframework.data.repository.Repository)")
+    public Object measureRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        Class<?>[] interfaces = joinPoint.getTarget().getClass().getInterfaces();
+        String repositoryName = interfaces.length > 0 ? interfaces[0].getSimpleName() : "unknown";
+        recordResultSize(REPOSITORY_RESULTS, "repository", repositoryName, joinPoint.getSignature().getName(), result);
+        return result;
+    }
+
+    private void recordResultSize(String name, String ownerTag, String owner, String methodName, Object result) {
+        long size = resultSize(result);
+        if (size < 0) {
+            return;
+        }
+        DistributionSummary.builder(name)
+                .description("Количество возвращенных строк")
+                .baseUnit("rows")
+                .tags(ownerTag, owner, "method", methodName)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    /**
+     * Количество строк в результате или -1, если результат не является набором строк.
+     */
+    private static long resultSize(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof LoanPage loanPage) {
+            return loanPage.getContent().size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
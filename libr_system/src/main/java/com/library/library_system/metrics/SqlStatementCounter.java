@@ -0,0 +1,32 @@
+package com.library.library_system.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы, подготовленные Hibernate в текущем потоке.
+ * Используется для метрики количества запросов на один HTTP-запрос.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNTER = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNTER.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Обнуляет счетчик текущего потока.
+     */
+    public static void reset() {
+        COUNTER.get()[0] = 0;
+    }
+
+    /**
+     * Количество запросов в текущем потоке с последнего обнуления.
+     */
+    public static long getCount() {
+        return COUNTER.get()[0];
+    }
+}
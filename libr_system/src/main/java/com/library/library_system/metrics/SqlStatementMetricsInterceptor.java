@@ -0,0 +1,40 @@
+package com.library.library_system.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Записывает количество SQL-запросов, выполненных за HTTP-запрос, с тегом шаблона URI.
+ * Экраны с полной загрузкой таблиц видны по большому числу запросов.
+ */
+public class SqlStatementMetricsInterceptor implements HandlerInterceptor {
+
+    public static final String STATEMENTS_PER_REQUEST = "library.http.sql.statements";
+
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(STATEMENTS_PER_REQUEST)
+                .description("Количество SQL-запросов на HTTP-запрос")
+                .baseUnit("statements")
+                .tags("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(SqlStatementCounter.getCount());
+    }
+}
@@ -1,12 +1,22 @@
 package com.library.library_system.repository;
 
+import com.library.library_system.dto.LoanCounts;
+import com.library.library_system.dto.LoanListItem;
 import com.library.library_system.entity.BookLoan;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий для работы с выдачами книг.
@@ -14,33 +24,162 @@ import java.util.List;
 @Repository
 public interface BookLoanRepository extends JpaRepository<BookLoan, Long> {
 
-    @Query("SELECT bl FROM BookLoan bl WHERE bl.returnDate IS NULL")
-    List<BookLoan> findActiveLoans();
+    /**
+     * Выдачи, у которых книга, читатель или библиотекарь совпадает с шаблоном :pattern.
+     * Совпадения ищутся в справочниках по индексам, затем выдачи подтягиваются
+     * по индексам внешних ключей, поэтому объем работы зависит от числа совпадений,
+     * а не от размера book_loans. Запрос собирается из частей SEARCH_HITS_* и условий
+     * отбора книг, читателей и библиотекарей (подстрока или префикс, см. SearchQuery).
+     */
+    String SEARCH_HITS_BOOKS = "WITH hits AS (" +
+            "SELECT bl.loan_id, bl.loan_date, m.rank FROM (" +
+            "SELECT b.book_id, GREATEST(word_similarity(:query, b.title), " +
+            "word_similarity(:query, b.author), word_similarity(:query, b.book_number)) AS rank " +
+            "FROM books b WHERE ";
 
-    @Query("SELECT bl FROM BookLoan bl WHERE bl.dueDate < :currentDate AND bl.returnDate IS NULL")
-    List<BookLoan> findOverdueLoans(@Param("currentDate") LocalDate currentDate);
+    String SEARCH_HITS_READERS = ") m JOIN book_loans bl ON bl.book_id = m.book_id " +
+            "UNION ALL " +
+            "SELECT bl.loan_id, bl.loan_date, m.rank FROM (" +
+            "SELECT r.reader_id, GREATEST(word_similarity(:query, r.full_name), " +
+            "word_similarity(:query, r.ticket_number), word_similarity(:query, r.phone_number)) AS rank " +
+            "FROM readers r WHERE ";
 
-    @Query("SELECT DISTINCT bl FROM BookLoan bl " +
-            "LEFT JOIN FETCH bl.book " +
-            "LEFT JOIN FETCH bl.reader " +
-            "LEFT JOIN FETCH bl.librarian " +
-            "ORDER BY bl.loanDate DESC")
-    List<BookLoan> findAllWithDetails();
+    String SEARCH_HITS_LIBRARIANS = ") m JOIN book_loans bl ON bl.reader_id = m.reader_id " +
+            "UNION ALL " +
+            "SELECT bl.loan_id, bl.loan_date, m.rank FROM (" +
+            "SELECT l.librarian_id, word_similarity(:query, l.full_name) AS rank " +
+            "FROM librarians l WHERE ";
 
-    @Query("SELECT bl FROM BookLoan bl WHERE bl.book.id = :bookId")
-    List<BookLoan> findByBookId(@Param("bookId") Long bookId);
+    String SEARCH_HITS_END = ") m JOIN book_loans bl ON bl.librarian_id = m.librarian_id" +
+            ") ";
 
-    @Query("SELECT bl FROM BookLoan bl WHERE bl.reader.id = :readerId")
-    List<BookLoan> findByReaderId(@Param("readerId") Long readerId);
+    /**
+     * Подстрока без учета регистра: ILIKE обслуживают trigram GIN индексы справочников.
+     */
+    String SEARCH_HITS_CONTAINING = SEARCH_HITS_BOOKS +
+            "b.title ILIKE :pattern OR b.author ILIKE :pattern OR b.book_number ILIKE :pattern" +
+            SEARCH_HITS_READERS +
+            "r.full_name ILIKE :pattern OR r.ticket_number ILIKE :pattern OR r.phone_number ILIKE :pattern" +
+            SEARCH_HITS_LIBRARIANS +
+            "l.full_name ILIKE :pattern" +
+            SEARCH_HITS_END;
 
-    @Query("SELECT bl FROM BookLoan bl WHERE bl.librarian.id = :librarianId")
-    List<BookLoan> findByLibrarianId(@Param("librarianId") Long librarianId);
+    /**
+     * Префикс без учета регистра для коротких запросов, в которых нет тройки символов
+     * для trigram индексов: индексы lower(...) text_pattern_ops. Телефон, как и в
+     * поиске читателей, ищется только как подстрока.
+     */
+    String SEARCH_HITS_STARTING_WITH = SEARCH_HITS_BOOKS +
+            "lower(b.title) LIKE lower(:pattern) OR lower(b.author) LIKE lower(:pattern) " +
+            "OR lower(b.book_number) LIKE lower(:pattern)" +
+            SEARCH_HITS_READERS +
+            "lower(r.full_name) LIKE lower(:pattern) OR lower(r.ticket_number) LIKE lower(:pattern)" +
+            SEARCH_HITS_LIBRARIANS +
+            "lower(l.full_name) LIKE lower(:pattern)" +
+            SEARCH_HITS_END;
 
-    @Query("SELECT CASE WHEN COUNT(bl) > 0 THEN true ELSE false END " +
-            "FROM BookLoan bl WHERE bl.book.id = :bookId AND bl.returnDate IS NULL")
-    boolean existsActiveLoanByBookId(@Param("bookId") Long bookId);
+    /**
+     * Страница ID найденных выдач: по релевантности, затем новые первыми.
+     */
+    String SEARCH_HITS_PAGE = "SELECT loan_id FROM hits GROUP BY loan_id, loan_date " +
+            "ORDER BY MAX(rank) DESC, loan_date DESC, loan_id DESC " +
+            "LIMIT :limit OFFSET :offset";
 
-    @Query("SELECT CASE WHEN COUNT(bl) > 0 THEN true ELSE false END " +
-            "FROM BookLoan bl WHERE bl.reader.id = :readerId AND bl.returnDate IS NULL")
-    boolean existsActiveLoanByReaderId(@Param("readerId") Long readerId);
+    String SEARCH_HITS_COUNT = "SELECT COUNT(DISTINCT loan_id) FROM hits";
+
+    /**
+     * Строка списка выдач: только отображаемые поля выдачи, книги и читателя,
+     * без загрузки сущностей в контекст персистентности.
+     */
+    String LOAN_LIST_ITEM = "SELECT new com.library.library_system.dto.LoanListItem(" +
+            "bl.id, bl.loanDate, bl.dueDate, bl.returnDate, b.title, b.author, r.fullName) " +
+            "FROM BookLoan bl JOIN bl.book b JOIN bl.reader r ";
+
+    @Query(LOAN_LIST_ITEM +
+            "WHERE (bl.loanDate, bl.id) < (:loanDate, :loanId) " +
+            "ORDER BY bl.loanDate DESC, bl.id DESC")
+    List<LoanListItem> findPageAfter(@Param("loanDate") LocalDate loanDate,
+                                     @Param("loanId") Long loanId,
+                                     Limit limit);
+
+    @Query(LOAN_LIST_ITEM +
+            "WHERE bl.returnDate IS NULL " +
+            "AND (bl.loanDate, bl.id) < (:loanDate, :loanId) " +
+            "ORDER BY bl.loanDate DESC, bl.id DESC")
+    List<LoanListItem> findActivePageAfter(@Param("loanDate") LocalDate loanDate,
+                                           @Param("loanId") Long loanId,
+                                           Limit limit);
+
+    @Query(LOAN_LIST_ITEM +
+            "WHERE bl.returnDate IS NULL AND bl.dueDate < :currentDate " +
+            "AND (bl.dueDate, bl.id) > (:dueDate, :loanId) " +
+            "ORDER BY bl.dueDate, bl.id")
+    List<LoanListItem> findOverduePageAfter(@Param("currentDate") LocalDate currentDate,
+                                            @Param("dueDate") LocalDate dueDate,
+                                            @Param("loanId") Long loanId,
+                                            Limit limit);
+
+    @Query(LOAN_LIST_ITEM +
+            "WHERE bl.returnDate IS NOT NULL " +
+            "AND (bl.loanDate, bl.id) < (:loanDate, :loanId) " +
+            "ORDER BY bl.loanDate DESC, bl.id DESC")
+    List<LoanListItem> findReturnedPageAfter(@Param("loanDate") LocalDate loanDate,
+                                             @Param("loanId") Long loanId,
+                                             Limit limit);
+
+    @Query("SELECT bl.id FROM BookLoan bl WHERE bl.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE BookLoan bl SET bl.overdue = true WHERE bl.id IN :ids")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE BookLoan bl SET bl.overdue = false " +
+            "WHERE bl.returnDate IS NULL AND bl.overdue = true AND bl.dueDate >= :currentDate")
+    int clearOverdueNotDue(@Param("currentDate") LocalDate currentDate);
+
+    @Query("SELECT new com.library.library_system.dto.LoanCounts(" +
+            "COUNT(bl), " +
+            "COUNT(bl) FILTER (WHERE bl.returnDate IS NULL), " +
+            "COUNT(bl) FILTER (WHERE bl.returnDate IS NULL AND bl.dueDate < :currentDate), " +
+            "COUNT(bl) FILTER (WHERE bl.returnDate IS NOT NULL)) " +
+            "FROM BookLoan bl")
+    LoanCounts countLoans(@Param("currentDate") LocalDate currentDate);
+
+    @Query(value = SEARCH_HITS_CONTAINING + SEARCH_HITS_PAGE, nativeQuery = true)
+    List<Long> searchLoanIdsContaining(@Param("query") String query,
+                                       @Param("pattern") String pattern,
+                                       @Param("limit") int limit,
+                                       @Param("offset") long offset);
+
+    @Query(value = SEARCH_HITS_CONTAINING + SEARCH_HITS_COUNT, nativeQuery = true)
+    long countSearchHitsContaining(@Param("query") String query, @Param("pattern") String pattern);
+
+    @Query(value = SEARCH_HITS_STARTING_WITH + SEARCH_HITS_PAGE, nativeQuery = true)
+    List<Long> searchLoanIdsStartingWith(@Param("query") String query,
+                                         @Param("pattern") String pattern,
+                                         @Param("limit") int limit,
+                                         @Param("offset") long offset);
+
+    @Query(value = SEARCH_HITS_STARTING_WITH + SEARCH_HITS_COUNT, nativeQuery = true)
+    long countSearchHitsStartingWith(@Param("query") String query, @Param("pattern") String pattern);
+
+    @Query(LOAN_LIST_ITEM +
+            "WHERE bl.id IN :ids")
+    List<LoanListItem> findListItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Выдача с книгой и читателем одним запросом: для возврата и удаления,
+     * которые меняют состояние выдачи у книги и читателя.
+     */
+    @EntityGraph(BookLoan.BOOK_AND_READER_GRAPH)
+    Optional<BookLoan> findWithBookAndReaderById(Long id);
+
+    /**
+     * Есть ли у библиотекаря выдачи (проверка перед удалением). Доступность книг и
+     * активные выдачи читателей не ищутся по выдачам: они хранятся в books.current_loan_id
+     * и readers.active_loan_count.
+     */
+    boolean existsByLibrarianId(Long librarianId);
 }
\ No newline at end of file
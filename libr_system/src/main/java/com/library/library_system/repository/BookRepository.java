@@ -1,8 +1,15 @@
 package com.library.library_system.repository;
 
+import com.library.library_system.dto.BookListItem;
 import com.library.library_system.entity.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
@@ -13,11 +20,54 @@ import java.util.List;
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
-    @Query("SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))")
-    List<Book> findByTitleContainingIgnoreCase(@Param("title") String title);
+    String BOOK_LIST_ITEM = "SELECT new com.library.library_system.dto.BookListItem(" +
+            "b.id, b.bookNumber, b.title, b.author, b.publicationYear, b.currentLoanId) FROM Book b ";
 
-    @Query("SELECT b FROM Book b WHERE LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))")
-    List<Book> findByAuthorContainingIgnoreCase(@Param("author") String author);
+    /**
+     * Подстрока без учета регистра в названии, авторе или номере: ILIKE
+     * обслуживают trigram GIN индексы idx_books_*_trgm.
+     */
+    String CONTAINING = "WHERE b.title ILIKE :pattern ESCAPE '\\' " +
+            "OR b.author ILIKE :pattern ESCAPE '\\' " +
+            "OR b.bookNumber ILIKE :pattern ESCAPE '\\' ";
 
+    /**
+     * Префикс названия, автора или номера без учета регистра: индексы lower(...) text_pattern_ops.
+     */
+    String STARTING_WITH = "WHERE lower(b.title) LIKE lower(:pattern) ESCAPE '\\' " +
+            "OR lower(b.author) LIKE lower(:pattern) ESCAPE '\\' " +
+            "OR lower(b.bookNumber) LIKE lower(:pattern) ESCAPE '\\' ";
+
+    /**
+     * Релевантность: сходство запроса со словами полей (word_similarity из pg_trgm).
+     */
+    String BY_RELEVANCE = "ORDER BY greatest(function('word_similarity', :query, b.title), " +
+            "function('word_similarity', :query, b.author), " +
+            "function('word_similarity', :query, b.bookNumber)) DESC, b.id";
+
+    @Query(value = BOOK_LIST_ITEM + CONTAINING + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(b) FROM Book b " + CONTAINING)
+    Page<BookListItem> searchContaining(@Param("query") String query,
+                                        @Param("pattern") String pattern,
+                                        Pageable pageable);
+
+    @Query(value = BOOK_LIST_ITEM + STARTING_WITH + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(b) FROM Book b " + STARTING_WITH)
+    Page<BookListItem> searchStartingWith(@Param("query") String query,
+                                          @Param("pattern") String pattern,
+                                          Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Book findByBookNumber(String bookNumber);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT b FROM Book b WHERE b.currentLoanId IS NULL ORDER BY b.title, b.id")
+    Page<Book> findAvailable(Pageable pageable);
+
+    @Query(BOOK_LIST_ITEM + "ORDER BY b.id")
+    List<BookListItem> findAllListItems();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<Book> findBatchAfter(@Param("afterId") Long afterId, Limit limit);
 }
\ No newline at end of file
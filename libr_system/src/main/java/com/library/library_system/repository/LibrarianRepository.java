@@ -1,7 +1,15 @@
 package com.library.library_system.repository;
 
+import com.library.library_system.dto.LibrarianListItem;
 import com.library.library_system.entity.Librarian;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -10,7 +18,42 @@ import java.util.List;
  */
 @Repository
 public interface LibrarianRepository extends JpaRepository<Librarian, Long> {
-    List<Librarian> findByFullNameContainingIgnoreCase(String fullName);
+
+    String LIBRARIAN_LIST_ITEM = "SELECT new com.library.library_system.dto.LibrarianListItem(" +
+            "l.id, l.librarianNumber, l.fullName, l.position) FROM Librarian l ";
+
+    /**
+     * Подстрока ФИО без учета регистра: ILIKE обслуживает trigram GIN индекс idx_librarians_full_name_trgm.
+     */
+    String CONTAINING = "WHERE l.fullName ILIKE :pattern ESCAPE '\\' ";
+
+    /**
+     * Префикс ФИО без учета регистра: индекс lower(full_name) text_pattern_ops.
+     */
+    String STARTING_WITH = "WHERE lower(l.fullName) LIKE lower(:pattern) ESCAPE '\\' ";
+
+    /**
+     * Релевантность: сходство запроса со словами ФИО (word_similarity из pg_trgm).
+     */
+    String BY_RELEVANCE = "ORDER BY function('word_similarity', :query, l.fullName) DESC, l.id";
+
+    @Query(value = LIBRARIAN_LIST_ITEM + CONTAINING + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(l) FROM Librarian l " + CONTAINING)
+    Page<LibrarianListItem> searchContaining(@Param("query") String query,
+                                             @Param("pattern") String pattern,
+                                             Pageable pageable);
+
+    @Query(value = LIBRARIAN_LIST_ITEM + STARTING_WITH + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(l) FROM Librarian l " + STARTING_WITH)
+    Page<LibrarianListItem> searchStartingWith(@Param("query") String query,
+                                               @Param("pattern") String pattern,
+                                               Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Librarian findByLibrarianNumber(String librarianNumber);
+
     boolean existsByLibrarianNumber(String librarianNumber);
+
+    @Query(LIBRARIAN_LIST_ITEM + "ORDER BY l.id")
+    List<LibrarianListItem> findAllListItems();
 }
\ No newline at end of file
@@ -1,7 +1,16 @@
 package com.library.library_system.repository;
 
+import com.library.library_system.dto.ReaderListItem;
 import com.library.library_system.entity.Reader;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -10,6 +19,54 @@ import java.util.List;
  */
 @Repository
 public interface ReaderRepository extends JpaRepository<Reader, Long> {
-    List<Reader> findByFullNameContainingIgnoreCase(String fullName);
+
+    String READER_LIST_ITEM = "SELECT new com.library.library_system.dto.ReaderListItem(" +
+            "r.id, r.ticketNumber, r.fullName, r.phoneNumber, r.registrationDate) FROM Reader r ";
+
+    /**
+     * Подстрока без учета регистра в ФИО, билете или телефоне: ILIKE
+     * обслуживают trigram GIN индексы idx_readers_*_trgm.
+     */
+    String CONTAINING = "WHERE r.fullName ILIKE :pattern ESCAPE '\\' " +
+            "OR r.ticketNumber ILIKE :pattern ESCAPE '\\' " +
+            "OR r.phoneNumber ILIKE :pattern ESCAPE '\\' ";
+
+    /**
+     * Префикс ФИО или билета без учета регистра: индексы lower(...) text_pattern_ops.
+     */
+    String STARTING_WITH = "WHERE lower(r.fullName) LIKE lower(:pattern) ESCAPE '\\' " +
+            "OR lower(r.ticketNumber) LIKE lower(:pattern) ESCAPE '\\' ";
+
+    /**
+     * Релевантность: сходство запроса со словами полей (word_similarity из pg_trgm).
+     */
+    String BY_RELEVANCE = "ORDER BY greatest(function('word_similarity', :query, r.fullName), " +
+            "function('word_similarity', :query, r.ticketNumber), " +
+            "function('word_similarity', :query, r.phoneNumber)) DESC, r.id";
+
+    @Query(value = READER_LIST_ITEM + CONTAINING + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(r) FROM Reader r " + CONTAINING)
+    Page<ReaderListItem> searchContaining(@Param("query") String query,
+                                          @Param("pattern") String pattern,
+                                          Pageable pageable);
+
+    @Query(value = READER_LIST_ITEM + STARTING_WITH + BY_RELEVANCE,
+            countQuery = "SELECT COUNT(r) FROM Reader r " + STARTING_WITH)
+    Page<ReaderListItem> searchStartingWith(@Param("query") String query,
+                                            @Param("pattern") String pattern,
+                                            Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Reader findByTicketNumber(String ticketNumber);
+
+    boolean existsByTicketNumber(String ticketNumber);
+    boolean existsByPhoneNumber(String phoneNumber);
+    boolean existsByPhoneNumberAndIdNot(String phoneNumber, Long id);
+
+    @Query(READER_LIST_ITEM + "ORDER BY r.id")
+    List<ReaderListItem> findAllListItems();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT r FROM Reader r WHERE r.id > :afterId ORDER BY r.id")
+    List<Reader> findBatchAfter(@Param("afterId") Long afterId, Limit limit);
 }
\ No newline at end of file
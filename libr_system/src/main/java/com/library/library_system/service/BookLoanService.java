@@ -1,21 +1,102 @@
 package com.library.library_system.service;
 
+import com.library.library_system.dto.LoanBatchItem;
+import com.library.library_system.dto.LoanBatchResult;
+import com.library.library_system.dto.LoanCheckoutBatch;
+import com.library.library_system.dto.LoanCounts;
+import com.library.library_system.dto.LoanListItem;
+import com.library.library_system.dto.LoanPage;
 import com.library.library_system.entity.*;
+import com.library.library_system.event.EntityChangedEvent;
 import com.library.library_system.repository.*;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Сервис для управления выдачами книг.
+ * Списки выдач читаются проекциями LoanListItem в транзакциях только для чтения.
  */
+@Slf4j
 @Service
 @Transactional
 public class BookLoanService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Срок выдачи по умолчанию, дней.
+     */
+    public static final int DEFAULT_LOAN_DAYS = 14;
+
+    /**
+     * Курсор первой страницы: строго больше любой реальной пары (loan_date, loan_id).
+     */
+    private static final LocalDate FIRST_PAGE_LOAN_DATE = LocalDate.of(9999, 12, 31);
+
+    private static final long FIRST_PAGE_LOAN_ID = Long.MAX_VALUE;
+
+    /**
+     * Курсор первой страницы просроченных: строго меньше любой реальной пары (due_date, loan_id).
+     */
+    private static final LocalDate FIRST_PAGE_DUE_DATE = LocalDate.of(1, 1, 1);
+
+    private static final long FIRST_PAGE_DUE_LOAN_ID = 0L;
+
+    /**
+     * Возврат пакета выдач одним запросом: отмечает активные выдачи возвращенными,
+     * снимает отметку о выдаче с их книг и уменьшает счетчики читателей
+     * (версии книг и читателей увеличиваются, как при сохранении через JPA).
+     * Возвращает выдачи с данными освобожденных книг.
+     */
+    private static final String RETURN_LOANS_SQL = "WITH returned AS (" +
+            "UPDATE book_loans SET return_date = ? WHERE loan_id = ANY(?) AND return_date IS NULL " +
+            "RETURNING loan_id, book_id, reader_id, due_date), " +
+            "released_books AS (" +
+            "UPDATE books b SET current_loan_id = NULL, version = b.version + 1 " +
+            "FROM returned r WHERE b.current_loan_id = r.loan_id " +
+            "RETURNING b.book_id, b.book_number, b.title, b.author, b.publication_year, b.version), " +
+            "released_readers AS (" +
+            "UPDATE readers rd SET active_loan_count = greatest(rd.active_loan_count - c.loans, 0), version = rd.version + 1 " +
+            "FROM (SELECT reader_id, count(*) AS loans FROM returned GROUP BY reader_id) c " +
+            "WHERE rd.reader_id = c.reader_id) " +
+            "SELECT r.loan_id, r.book_id, r.reader_id, r.due_date, " +
+            "b.book_number, b.title, b.author, b.publication_year, b.version " +
+            "FROM returned r LEFT JOIN released_books b ON b.book_id = r.book_id";
+
+    /**
+     * Выдача, возвращенная пакетом; book - освобожденная книга или null,
+     * если книга была отмечена другой выдачей.
+     */
+    private record ReturnedLoan(long loanId, long bookId, long readerId, LocalDate dueDate, Book book) {
+    }
+
     @Autowired
     private BookLoanRepository bookLoanRepository;
 
@@ -28,224 +109,665 @@ public class BookLoanService {
     @Autowired
     private LibrarianRepository librarianRepository;
 
-    /**
-     * Ищет выдачи по ключевому слову.
-     * @param keyword ключевое слово для поиска
-     */
-    public List<BookLoan> searchLoans(String keyword) {
-        try {
-            System.out.println("BookLoanService: Поиск выдач по ключевому слову: " + keyword);
+    @Autowired
+    private LoanCounterCache loanCounterCache;
 
-            if (keyword == null || keyword.trim().isEmpty()) {
-                return getAllLoans();
-            }
+    @Autowired
+    private OverdueLoanIndex overdueLoanIndex;
 
-            String searchTerm = keyword.trim().toLowerCase();
-            List<BookLoan> allLoans = getAllLoans();
-            List<BookLoan> result = new ArrayList<>();
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-            for (BookLoan loan : allLoans) {
-                boolean found = false;
+    @Autowired
+    private DataVersion dataVersion;
 
-                if (loan.getBook() != null && loan.getBook().getTitle() != null &&
-                        loan.getBook().getTitle().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
-                if (!found && loan.getBook() != null && loan.getBook().getAuthor() != null &&
-                        loan.getBook().getAuthor().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
-                if (!found && loan.getReader() != null && loan.getReader().getFullName() != null &&
-                        loan.getReader().getFullName().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+    @Autowired
+    private LookupService lookupService;
 
-                if (!found && loan.getLibrarian() != null && loan.getLibrarian().getFullName() != null &&
-                        loan.getLibrarian().getFullName().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+    /**
+     * Ищет выдачи по ключевому слову в названии, авторе и номере книги,
+     * ФИО, билете и телефоне читателя и ФИО библиотекаря.
+     * Поиск выполняется в базе данных; результаты упорядочены по релевантности.
+     * Запрос короче SearchQuery.MIN_SUBSTRING_LENGTH символов ищется как префикс,
+     * как в поиске книг, читателей и библиотекарей.
+     * @param keyword ключевое слово для поиска
+     * @param page номер страницы (с нуля)
+     * @param size размер страницы
+     */
+    @Transactional(readOnly = true)
+    public Page<LoanListItem> searchLoans(String keyword, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize);
 
-                if (!found && loan.getReader() != null && loan.getReader().getTicketNumber() != null &&
-                        loan.getReader().getTicketNumber().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+        try {
+            log.debug("Поиск выдач по ключевому слову: {}", keyword);
 
-                if (!found && loan.getReader() != null && loan.getReader().getPhoneNumber() != null &&
-                        loan.getReader().getPhoneNumber().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                    found = true;
-                }
+            if (keyword == null || keyword.trim().isEmpty()) {
+                return Page.empty(pageable);
+            }
 
-                if (!found && loan.getBook() != null && loan.getBook().getBookNumber() != null &&
-                        loan.getBook().getBookNumber().toLowerCase().contains(searchTerm)) {
-                    result.add(loan);
-                }
+            String query = keyword.trim();
+            boolean substring = SearchQuery.isSubstring(query);
+            String pattern = substring ? SearchQuery.containing(query) : SearchQuery.startingWith(query);
+
+            long total = substring
+                    ? bookLoanRepository.countSearchHitsContaining(query, pattern)
+                    : bookLoanRepository.countSearchHitsStartingWith(query, pattern);
+            if (total == 0 || pageable.getOffset() >= total) {
+                return new PageImpl<>(List.of(), pageable, total);
             }
 
-            System.out.println("Найдено выдач: " + result.size());
-            return result;
+            List<Long> ids = substring
+                    ? bookLoanRepository.searchLoanIdsContaining(query, pattern, pageSize, pageable.getOffset())
+                    : bookLoanRepository.searchLoanIdsStartingWith(query, pattern, pageSize, pageable.getOffset());
+            List<LoanListItem> result = findListItemsInOrder(ids);
+
+            log.debug("Найдено выдач: {}", total);
+            return new PageImpl<>(result, pageable, total);
 
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске выдач: " + e.getMessage());
-            e.printStackTrace();
-            return getAllLoans();
+            log.error("Ошибка при поиске выдач", e);
+            return Page.empty(pageable);
         }
     }
 
     /**
-     * Получает все выдачи.
+     * Загружает строки списка выдач в порядке переданных ID.
+     * @param ids ID выдач
      */
-    public List<BookLoan> getAllLoans() {
-        try {
-            System.out.println("BookLoanService: Получение всех выдач...");
+    private List<LoanListItem> findListItemsInOrder(List<Long> ids) {
+        Map<Long, LoanListItem> loansById = new HashMap<>();
+        for (LoanListItem loan : bookLoanRepository.findListItemsByIdIn(ids)) {
+            loansById.put(loan.getId(), loan);
+        }
 
-            try {
-                return bookLoanRepository.findAllWithDetails();
-            } catch (Exception e) {
-                System.err.println("Метод findAllWithDetails не работает, используем findAll: " + e.getMessage());
-                return bookLoanRepository.findAll();
+        List<LoanListItem> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            LoanListItem loan = loansById.get(id);
+            if (loan != null) {
+                result.add(loan);
             }
-
-        } catch (Exception e) {
-            System.err.println("Ошибка получения всех выдач: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
         }
+        return result;
     }
 
     /**
-     * Получает активные выдачи.
+     * Получает страницу выдач, упорядоченных по (loan_date, loan_id) по убыванию;
+     * просроченные - по (due_date, loan_id) по возрастанию, как в OverdueLoanIndex,
+     * чтобы курсор одинаково читался из индекса и из базы, пока индекс не построен.
+     * Следующая страница ищется по ключу последней строки, а не через OFFSET,
+     * поэтому время ответа не зависит от глубины листания и размера истории.
+     * @param filter фильтр: all, active, overdue или returned
+     * @param afterDate дата выдачи (для просроченных - срок возврата) последней строки
+     *                  предыдущей страницы (null - первая страница)
+     * @param afterId ID последней строки предыдущей страницы (null - первая страница)
+     * @param size размер страницы
      */
-    public List<BookLoan> getActiveLoans() {
-        try {
-            System.out.println("BookLoanService: Получение активных выдач...");
-            return bookLoanRepository.findActiveLoans();
-        } catch (Exception e) {
-            System.err.println("Ошибка получения активных выдач: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    @Transactional(readOnly = true)
+    public LoanPage getLoansPage(String filter, LocalDate afterDate, Long afterId, int size) {
+        log.debug("Получение страницы выдач, фильтр={}, после={}/{}", filter, afterDate, afterId);
+
+        if ("overdue".equals(filter)) {
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+            return overdueLoanIndex.isReady()
+                    ? getOverduePage(afterDate, afterId, pageSize)
+                    : getOverduePageFromDatabase(afterDate, afterId, pageSize);
         }
+
+        boolean first = afterDate == null || afterId == null;
+        LocalDate loanDate = first ? FIRST_PAGE_LOAN_DATE : afterDate;
+        long loanId = first ? FIRST_PAGE_LOAN_ID : afterId;
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<LoanListItem> rows = switch (filter == null ? "all" : filter) {
+            case "active" -> bookLoanRepository.findActivePageAfter(loanDate, loanId, limit);
+            case "returned" -> bookLoanRepository.findReturnedPageAfter(loanDate, loanId, limit);
+            default -> bookLoanRepository.findPageAfter(loanDate, loanId, limit);
+        };
+
+        boolean hasNext = rows.size() > pageSize;
+        List<LoanListItem> content = hasNext ? rows.subList(0, pageSize) : rows;
+        LoanListItem last = content.isEmpty() ? null : content.get(content.size() - 1);
+
+        return new LoanPage(content, first, hasNext,
+                last != null ? last.getLoanDate() : null,
+                last != null ? last.getId() : null,
+                pageSize);
     }
 
     /**
-     * Получает просроченные выдачи.
+     * Страница просроченных выдач из OverdueLoanIndex, упорядоченных по сроку возврата.
+     * Курсор следующей страницы - срок возврата и ID последней выдачи.
      */
-    public List<BookLoan> getOverdueLoans() {
-        try {
-            System.out.println("BookLoanService: Получение просроченных выдач...");
-            return bookLoanRepository.findOverdueLoans(LocalDate.now());
-        } catch (Exception e) {
-            System.err.println("Ошибка получения просроченных выдач: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    private LoanPage getOverduePage(LocalDate afterDueDate, Long afterId, int pageSize) {
+        List<OverdueLoanIndex.Entry> entries = overdueLoanIndex.page(afterDueDate, afterId, pageSize + 1);
+        boolean hasNext = entries.size() > pageSize;
+        List<OverdueLoanIndex.Entry> pageEntries = hasNext ? entries.subList(0, pageSize) : entries;
+
+        List<Long> ids = new ArrayList<>(pageEntries.size());
+        for (OverdueLoanIndex.Entry entry : pageEntries) {
+            ids.add(entry.loanId());
         }
+        OverdueLoanIndex.Entry last = pageEntries.isEmpty() ? null : pageEntries.get(pageEntries.size() - 1);
+
+        return new LoanPage(findListItemsInOrder(ids), afterDueDate == null || afterId == null, hasNext,
+                last != null ? last.dueDate() : null,
+                last != null ? last.loanId() : null,
+                pageSize);
+    }
+
+    /**
+     * Страница просроченных выдач из базы, пока OverdueLoanIndex не построен.
+     * Порядок и курсор те же, что у индекса: срок возврата и ID последней выдачи.
+     */
+    private LoanPage getOverduePageFromDatabase(LocalDate afterDueDate, Long afterId, int pageSize) {
+        boolean first = afterDueDate == null || afterId == null;
+        List<LoanListItem> rows = bookLoanRepository.findOverduePageAfter(LocalDate.now(),
+                first ? FIRST_PAGE_DUE_DATE : afterDueDate,
+                first ? FIRST_PAGE_DUE_LOAN_ID : afterId,
+                Limit.of(pageSize + 1));
+
+        boolean hasNext = rows.size() > pageSize;
+        List<LoanListItem> content = hasNext ? rows.subList(0, pageSize) : rows;
+        LoanListItem last = content.isEmpty() ? null : content.get(content.size() - 1);
+
+        return new LoanPage(content, first, hasNext,
+                last != null ? last.getDueDate() : null,
+                last != null ? last.getId() : null,
+                pageSize);
+    }
+
+    /**
+     * Количество выдач по вкладкам списка из кэша счетчиков.
+     */
+    @Transactional(readOnly = true)
+    public LoanCounts getLoanCounts() {
+        return loanCounterCache.get();
     }
 
     /**
      * Сохраняет выдачу.
+     * Для новой выдачи в той же транзакции отмечает книгу как выданную и
+     * увеличивает счетчик активных выдач читателя. Книга и читатель защищены
+     * оптимистической блокировкой (@Version), поэтому из двух одновременных
+     * выдач одного экземпляра успешной будет только одна.
+     * Изменение существующей выдачи обновляет те же отметки (см. updateLoan).
      * @param loan объект выдачи
      */
     public BookLoan saveLoan(BookLoan loan) {
         try {
-            System.out.println("BookLoanService: Сохранение выдачи...");
-            return bookLoanRepository.save(loan);
+            log.debug("Сохранение выдачи");
+
+            if (loan.getId() != null) {
+                return updateLoan(loan);
+            }
+
+            if (loan.getBook() == null || loan.getReader() == null) {
+                throw new RuntimeException("Книга и читатель обязательны");
+            }
+
+            Book book = bookRepository.findById(loan.getBook().getId())
+                    .orElseThrow(() -> new RuntimeException("Книга с ID " + loan.getBook().getId() + " не найдена"));
+            Reader reader = readerRepository.findById(loan.getReader().getId())
+                    .orElseThrow(() -> new RuntimeException("Читатель с ID " + loan.getReader().getId() + " не найден"));
+
+            if (loan.getReturnDate() == null && !book.isAvailable()) {
+                throw new RuntimeException("Книга '" + book.getTitle() + "' уже выдана");
+            }
+
+            loan.setBook(book);
+            loan.setReader(reader);
+            BookLoan savedLoan = bookLoanRepository.save(loan);
+
+            if (savedLoan.getReturnDate() == null) {
+                book.setCurrentLoanId(savedLoan.getId());
+                reader.setActiveLoanCount(reader.getActiveLoanCount() + 1);
+            }
+
+            bookLoanRepository.flush();
+            loanCounterCache.applyAfterCommit(LoanCounts.delta(null, LoanCounterCache.stateOf(savedLoan)));
+            overdueLoanIndex.updateAfterCommit(savedLoan);
+            publishLoanChanged(savedLoan, false);
+            return savedLoan;
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Конфликт при сохранении выдачи: {}", e.getMessage());
+            throw new OptimisticLockingFailureException(
+                    "Не удалось сохранить выдачу: книга или читатель были изменены одновременно, повторите попытку", e);
         } catch (Exception e) {
-            System.err.println("Ошибка сохранения выдачи: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Ошибка сохранения выдачи", e);
             throw new RuntimeException("Не удалось сохранить выдачу: " + e.getMessage());
         }
     }
 
+    /**
+     * Изменяет существующую выдачу.
+     * Если выдача была активной, отметка снимается с прежней книги и счетчик прежнего
+     * читателя уменьшается, как при возврате; если активна после изменения - новая
+     * книга отмечается как выданная и счетчик нового читателя увеличивается, как при выдаче.
+     * @param loan выдача с ID и новыми значениями полей
+     */
+    private BookLoan updateLoan(BookLoan loan) {
+        if (loan.getBook() == null || loan.getReader() == null) {
+            throw new RuntimeException("Книга и читатель обязательны");
+        }
+
+        BookLoan existing = bookLoanRepository.findWithBookAndReaderById(loan.getId())
+                .orElseThrow(() -> new RuntimeException("Выдача с ID " + loan.getId() + " не найдена"));
+        Book oldBook = existing.getBook();
+        Reader oldReader = existing.getReader();
+        LoanCounts before = LoanCounterCache.stateOf(existing);
+
+        Book book = bookRepository.findById(loan.getBook().getId())
+                .orElseThrow(() -> new RuntimeException("Книга с ID " + loan.getBook().getId() + " не найдена"));
+        Reader reader = readerRepository.findById(loan.getReader().getId())
+                .orElseThrow(() -> new RuntimeException("Читатель с ID " + loan.getReader().getId() + " не найден"));
+
+        if (existing.getReturnDate() == null) {
+            releaseLoan(existing);
+        }
+        if (loan.getReturnDate() == null && !book.isAvailable()) {
+            throw new RuntimeException("Книга '" + book.getTitle() + "' уже выдана");
+        }
+
+        existing.setBook(book);
+        existing.setReader(reader);
+        if (loan.getLibrarian() != null) {
+            existing.setLibrarian(librarianRepository.findById(loan.getLibrarian().getId())
+                    .orElseThrow(() -> new RuntimeException("Библиотекарь с ID " + loan.getLibrarian().getId() + " не найден")));
+        }
+        existing.setLoanDate(loan.getLoanDate());
+        existing.setDueDate(loan.getDueDate());
+        existing.setReturnDate(loan.getReturnDate());
+
+        if (existing.getReturnDate() == null) {
+            book.setCurrentLoanId(existing.getId());
+            reader.setActiveLoanCount(reader.getActiveLoanCount() + 1);
+        }
+
+        bookLoanRepository.flush();
+        loanCounterCache.applyAfterCommit(LoanCounts.delta(before, LoanCounterCache.stateOf(existing)));
+        overdueLoanIndex.updateAfterCommit(existing);
+        publishLoanChanged(existing, false);
+        if (oldBook != book) {
+            eventPublisher.publishEvent(new EntityChangedEvent(oldBook, false));
+        }
+        if (oldReader != reader) {
+            eventPublisher.publishEvent(new EntityChangedEvent(oldReader, false));
+        }
+        return existing;
+    }
+
     /**
      * Возвращает книгу.
      * @param loanId ID выдачи
      */
     public BookLoan returnBook(Long loanId) {
         try {
-            System.out.println("BookLoanService: Возврат книги ID=" + loanId);
+            log.debug("Возврат книги, выдача ID={}", loanId);
 
-            BookLoan loan = bookLoanRepository.findById(loanId)
+            BookLoan loan = bookLoanRepository.findWithBookAndReaderById(loanId)
                     .orElseThrow(() -> new RuntimeException("Выдача с ID " + loanId + " не найдена"));
 
             if (loan.getReturnDate() == null) {
+                LoanCounts before = LoanCounterCache.stateOf(loan);
                 loan.setReturnDate(LocalDate.now());
-                return bookLoanRepository.save(loan);
+                releaseLoan(loan);
+                BookLoan savedLoan = bookLoanRepository.save(loan);
+                bookLoanRepository.flush();
+                loanCounterCache.applyAfterCommit(LoanCounts.delta(before, LoanCounterCache.stateOf(savedLoan)));
+                overdueLoanIndex.updateAfterCommit(savedLoan);
+                publishLoanChanged(savedLoan, false);
+                return savedLoan;
             }
 
             return loan;
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Конфликт при возврате книги: {}", e.getMessage());
+            throw new RuntimeException("Не удалось вернуть книгу: данные были изменены одновременно, повторите попытку");
         } catch (Exception e) {
-            System.err.println("Ошибка возврата книги: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Ошибка возврата книги", e);
             throw new RuntimeException("Не удалось вернуть книгу: " + e.getMessage());
         }
     }
 
     /**
-     * Удаляет выдачу.
-     * @param id ID выдачи для удаления
+     * Возвращает книги по списку выдач в одной транзакции.
+     * Выдачи, их книги и читатели обновляются одним запросом (RETURN_LOANS_SQL),
+     * поэтому время не зависит от размера пакета так, как при возврате по одной.
+     * Срок возврата не проверяется: возвращать можно и просроченные выдачи.
+     * Записи книг и читателей удаляются из кэша второго уровня после фиксации,
+     * как после импорта.
+     * @param loanIds ID выдач, не больше MAX_BATCH_SIZE
+     * @return результат по каждой выдаче в порядке запроса
      */
-    public void deleteLoan(Long id) {
+    public LoanBatchResult returnBooks(List<Long> loanIds) {
+        long start = System.currentTimeMillis();
         try {
-            System.out.println("BookLoanService: Удаление выдачи ID=" + id);
+            Set<Long> ids = new LinkedHashSet<>();
+            for (Long id : loanIds) {
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            checkBatchSize(ids.size());
+            LocalDate today = LocalDate.now();
+
+            Map<Long, ReturnedLoan> returned = new HashMap<>();
+            if (!ids.isEmpty()) {
+                Long[] array = ids.toArray(new Long[0]);
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(RETURN_LOANS_SQL);
+                    ps.setObject(1, today);
+                    ps.setArray(2, con.createArrayOf("bigint", array));
+                    return ps;
+                }, (ResultSet rs) -> {
+                    Book book = null;
+                    if (rs.getString(5) != null) {
+                        book = new Book(rs.getLong(2), rs.getString(5), rs.getString(6), rs.getString(7),
+                                rs.getInt(8), null, rs.getLong(9));
+                    }
+                    ReturnedLoan loan = new ReturnedLoan(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                            rs.getObject(4, LocalDate.class), book);
+                    returned.put(loan.loanId(), loan);
+                });
+            }
 
-            if (bookLoanRepository.existsById(id)) {
-                bookLoanRepository.deleteById(id);
-            } else {
-                throw new RuntimeException("Выдача с ID " + id + " не найдена");
+            Set<Long> notReturned = new HashSet<>(ids);
+            notReturned.removeAll(returned.keySet());
+            Set<Long> existing = notReturned.isEmpty()
+                    ? Set.of() : new HashSet<>(bookLoanRepository.findExistingIds(notReturned));
+
+            List<LoanBatchItem> items = new ArrayList<>(ids.size());
+            Set<Long> bookIds = new HashSet<>();
+            Set<Long> readerIds = new HashSet<>();
+            int overdue = 0;
+            for (Long id : ids) {
+                ReturnedLoan loan = returned.get(id);
+                if (loan == null) {
+                    items.add(existing.contains(id)
+                            ? new LoanBatchItem(id, null, null, LoanBatchItem.Status.ALREADY_RETURNED, "Книга уже возвращена")
+                            : new LoanBatchItem(id, null, null, LoanBatchItem.Status.LOAN_NOT_FOUND, "Выдача с ID " + id + " не найдена"));
+                    continue;
+                }
+
+                bookIds.add(loan.bookId());
+                readerIds.add(loan.readerId());
+                if (loan.dueDate().isBefore(today)) {
+                    overdue++;
+                }
+                overdueLoanIndex.removeAfterCommit(id);
+                if (loan.book() != null) {
+                    eventPublisher.publishEvent(new EntityChangedEvent(loan.book(), false));
+                }
+                items.add(new LoanBatchItem(id, loan.bookId(), loan.readerId(), LoanBatchItem.Status.RETURNED, null));
+            }
+
+            if (!returned.isEmpty()) {
+                loanCounterCache.applyAfterCommit(new LoanCounts(0, -returned.size(), -overdue, returned.size()));
+                AfterCommit.run(() -> {
+                    Cache cache = entityManagerFactory.getCache();
+                    bookIds.forEach(id -> cache.evict(Book.class, id));
+                    readerIds.forEach(id -> cache.evict(Reader.class, id));
+                    dataVersion.bump(BookLoan.class, Book.class, Reader.class);
+                });
             }
+
+            LoanBatchResult result = new LoanBatchResult(items, System.currentTimeMillis() - start);
+            log.info("Пакетный возврат: возвращено {}, отклонено {} за {} мс",
+                    result.getSucceeded(), result.getFailed(), result.getDurationMs());
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Ошибка удаления выдачи: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Не удалось удалить выдачу: " + e.getMessage());
+            log.error("Ошибка пакетного возврата", e);
+            throw new RuntimeException("Не удалось вернуть книги: " + e.getMessage());
         }
     }
 
     /**
-     * Получает все книги.
+     * Выдает книги по списку пар (книга, читатель) в одной транзакции.
+     * Книги, читатели и библиотекарь загружаются одним запросом на таблицу,
+     * новые выдачи получают ID из пула последовательности и вставляются
+     * вместе с изменениями книг и читателей пакетами JDBC.
+     * Книга, уже выданная (в том числе предыдущей позицией пакета), отклоняется,
+     * остальные позиции при этом выполняются.
+     * @param batch библиотекарь, срок возврата и пары (книга, читатель), не больше MAX_BATCH_SIZE
+     * @return результат по каждой паре в порядке запроса
      */
-    public List<Book> getAllBooks() {
+    public LoanBatchResult checkoutBooks(LoanCheckoutBatch batch) {
+        long start = System.currentTimeMillis();
         try {
-            System.out.println("BookLoanService: Получение всех книг...");
-            return bookRepository.findAll();
+            List<LoanCheckoutBatch.Item> requested = batch.getItems() != null ? batch.getItems() : List.of();
+            checkBatchSize(requested.size());
+            if (batch.getLibrarianId() == null) {
+                throw new IllegalArgumentException("Библиотекарь обязателен");
+            }
+            LocalDate today = LocalDate.now();
+            LocalDate dueDate = batch.getDueDate() != null ? batch.getDueDate() : today.plusDays(DEFAULT_LOAN_DAYS);
+            if (dueDate.isBefore(today)) {
+                throw new IllegalArgumentException("Срок возврата должен быть сегодня или в будущем");
+            }
+            Librarian librarian = librarianRepository.findById(batch.getLibrarianId())
+                    .orElseThrow(() -> new IllegalArgumentException("Библиотекарь с ID " + batch.getLibrarianId() + " не найден"));
+
+            Set<Long> bookIds = new HashSet<>();
+            Set<Long> readerIds = new HashSet<>();
+            for (LoanCheckoutBatch.Item item : requested) {
+                if (item.getBookId() != null) {
+                    bookIds.add(item.getBookId());
+                }
+                if (item.getReaderId() != null) {
+                    readerIds.add(item.getReaderId());
+                }
+            }
+            Map<Long, Book> books = byId(bookRepository.findAllById(bookIds), Book::getId);
+            Map<Long, Reader> readers = byId(readerRepository.findAllById(readerIds), Reader::getId);
+
+            List<LoanBatchItem> items = new ArrayList<>(requested.size());
+            List<BookLoan> created = new ArrayList<>();
+            for (LoanCheckoutBatch.Item item : requested) {
+                Book book = books.get(item.getBookId());
+                Reader reader = readers.get(item.getReaderId());
+                if (book == null) {
+                    items.add(new LoanBatchItem(null, item.getBookId(), item.getReaderId(),
+                            LoanBatchItem.Status.BOOK_NOT_FOUND, "Книга с ID " + item.getBookId() + " не найдена"));
+                } else if (reader == null) {
+                    items.add(new LoanBatchItem(null, item.getBookId(), item.getReaderId(),
+                            LoanBatchItem.Status.READER_NOT_FOUND, "Читатель с ID " + item.getReaderId() + " не найден"));
+                } else if (!book.isAvailable()) {
+                    items.add(new LoanBatchItem(null, item.getBookId(), item.getReaderId(),
+                            LoanBatchItem.Status.BOOK_UNAVAILABLE, "Книга '" + book.getTitle() + "' уже выдана"));
+                } else {
+                    BookLoan loan = new BookLoan();
+                    loan.setBook(book);
+                    loan.setReader(reader);
+                    loan.setLibrarian(librarian);
+                    loan.setLoanDate(today);
+                    loan.setDueDate(dueDate);
+                    BookLoan savedLoan = bookLoanRepository.save(loan);
+                    book.setCurrentLoanId(savedLoan.getId());
+                    reader.setActiveLoanCount(reader.getActiveLoanCount() + 1);
+                    created.add(savedLoan);
+                    items.add(new LoanBatchItem(savedLoan.getId(), book.getId(), reader.getId(),
+                            LoanBatchItem.Status.CHECKED_OUT, null));
+                }
+            }
+            bookLoanRepository.flush();
+
+            if (!created.isEmpty()) {
+                loanCounterCache.applyAfterCommit(new LoanCounts(created.size(), created.size(), 0, 0));
+                Map<Long, Reader> changedReaders = new HashMap<>();
+                for (BookLoan loan : created) {
+                    eventPublisher.publishEvent(new EntityChangedEvent(loan, false));
+                    eventPublisher.publishEvent(new EntityChangedEvent(loan.getBook(), false));
+                    changedReaders.put(loan.getReader().getId(), loan.getReader());
+                }
+                // читатель с несколькими книгами пакета - одно событие
+                changedReaders.values().forEach(reader -> eventPublisher.publishEvent(new EntityChangedEvent(reader, false)));
+            }
+
+            LoanBatchResult result = new LoanBatchResult(items, System.currentTimeMillis() - start);
+            log.info("Пакетная выдача: выдано {}, отклонено {} за {} мс",
+                    result.getSucceeded(), result.getFailed(), result.getDurationMs());
+            return result;
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Конфликт при пакетной выдаче: {}", e.getMessage());
+            throw new OptimisticLockingFailureException(
+                    "Не удалось выдать книги: книга или читатель были изменены одновременно, повторите попытку", e);
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Ошибка получения книг: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+            log.error("Ошибка пакетной выдачи", e);
+            throw new RuntimeException("Не удалось выдать книги: " + e.getMessage());
         }
     }
 
     /**
-     * Получает всех читателей.
+     * Выдача по штрихкодам: номер книги и номер читательского билета.
+     * ID находятся по номерам в памяти (LookupService), книга, читатель и
+     * библиотекарь загружаются по ID, обычно из кэша второго уровня; если номер
+     * еще не попал в индекс или был изменен, используется поиск по номеру в базе.
+     * Проверка доступности и сохранение (saveLoan) выполняются в одной короткой транзакции.
+     * @param bookNumber номер книги
+     * @param ticketNumber номер читательского билета
+     * @param librarianId ID библиотекаря
+     * @param dueDate срок возврата; null - через DEFAULT_LOAN_DAYS дней
      */
-    public List<Reader> getAllReaders() {
-        try {
-            System.out.println("BookLoanService: Получение всех читателей...");
-            return readerRepository.findAll();
-        } catch (Exception e) {
-            System.err.println("Ошибка получения читателей: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    public LoanBatchItem checkoutByNumbers(String bookNumber, String ticketNumber, Long librarianId, LocalDate dueDate) {
+        if (librarianId == null) {
+            throw new IllegalArgumentException("Библиотекарь обязателен");
+        }
+        String number = bookNumber != null ? bookNumber.trim() : "";
+        String ticket = ticketNumber != null ? ticketNumber.trim() : "";
+
+        Book book = findBookByNumber(number);
+        if (book == null) {
+            return new LoanBatchItem(null, null, null, LoanBatchItem.Status.BOOK_NOT_FOUND,
+                    "Книга с номером '" + number + "' не найдена");
         }
+        Reader reader = findReaderByTicket(ticket);
+        if (reader == null) {
+            return new LoanBatchItem(null, book.getId(), null, LoanBatchItem.Status.READER_NOT_FOUND,
+                    "Читатель с билетом '" + ticket + "' не найден");
+        }
+        if (!book.isAvailable()) {
+            return new LoanBatchItem(null, book.getId(), reader.getId(), LoanBatchItem.Status.BOOK_UNAVAILABLE,
+                    "Книга '" + book.getTitle() + "' уже выдана");
+        }
+        Librarian librarian = librarianRepository.findById(librarianId)
+                .orElseThrow(() -> new IllegalArgumentException("Библиотекарь с ID " + librarianId + " не найден"));
+
+        BookLoan loan = new BookLoan();
+        loan.setBook(book);
+        loan.setReader(reader);
+        loan.setLibrarian(librarian);
+        loan.setLoanDate(LocalDate.now());
+        loan.setDueDate(dueDate != null ? dueDate : LocalDate.now().plusDays(DEFAULT_LOAN_DAYS));
+        BookLoan savedLoan = saveLoan(loan);
+        return new LoanBatchItem(savedLoan.getId(), book.getId(), reader.getId(), LoanBatchItem.Status.CHECKED_OUT, null);
+    }
+
+    private Book findBookByNumber(String bookNumber) {
+        Long id = lookupService.findBookId(bookNumber);
+        if (id != null) {
+            Book book = bookRepository.findById(id).orElse(null);
+            if (book != null && bookNumber.equals(book.getBookNumber())) {
+                return book;
+            }
+        }
+        return bookRepository.findByBookNumber(bookNumber);
+    }
+
+    private Reader findReaderByTicket(String ticketNumber) {
+        Long id = lookupService.findReaderId(ticketNumber);
+        if (id != null) {
+            Reader reader = readerRepository.findById(id).orElse(null);
+            if (reader != null && ticketNumber.equals(reader.getTicketNumber())) {
+                return reader;
+            }
+        }
+        return readerRepository.findByTicketNumber(ticketNumber);
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Не больше " + MAX_BATCH_SIZE + " позиций в пакете, передано " + size);
+        }
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> id) {
+        Map<Long, T> result = new HashMap<>();
+        for (T entity : entities) {
+            result.put(id.apply(entity), entity);
+        }
+        return result;
     }
 
     /**
-     * Получает всех библиотекарей.
+     * Удаляет выдачу.
+     * @param id ID выдачи для удаления
      */
-    public List<Librarian> getAllLibrarians() {
+    public void deleteLoan(Long id) {
         try {
-            System.out.println("BookLoanService: Получение всех библиотекарей...");
-            return librarianRepository.findAll();
+            log.debug("Удаление выдачи ID={}", id);
+
+            BookLoan loan = bookLoanRepository.findWithBookAndReaderById(id)
+                    .orElseThrow(() -> new RuntimeException("Выдача с ID " + id + " не найдена"));
+
+            if (loan.getReturnDate() == null) {
+                releaseLoan(loan);
+            }
+
+            bookLoanRepository.delete(loan);
+            bookLoanRepository.flush();
+            loanCounterCache.applyAfterCommit(LoanCounts.delta(LoanCounterCache.stateOf(loan), null));
+            overdueLoanIndex.removeAfterCommit(loan.getId());
+            publishLoanChanged(loan, true);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Конфликт при удалении выдачи: {}", e.getMessage());
+            throw new RuntimeException("Не удалось удалить выдачу: данные были изменены одновременно, повторите попытку");
         } catch (Exception e) {
-            System.err.println("Ошибка получения библиотекарей: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+            log.error("Ошибка удаления выдачи", e);
+            throw new RuntimeException("Не удалось удалить выдачу: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Публикует изменения выдачи, а также ее книги и читателя,
+     * у которых меняется состояние выдачи.
+     * @param loan выдача
+     * @param deleted удалена ли выдача
+     */
+    private void publishLoanChanged(BookLoan loan, boolean deleted) {
+        eventPublisher.publishEvent(new EntityChangedEvent(loan, deleted));
+        if (loan.getBook() != null) {
+            eventPublisher.publishEvent(new EntityChangedEvent(loan.getBook(), false));
+        }
+        if (loan.getReader() != null) {
+            eventPublisher.publishEvent(new EntityChangedEvent(loan.getReader(), false));
+        }
+    }
+
+    /**
+     * Снимает отметку о выдаче с книги и уменьшает счетчик активных выдач читателя.
+     * @param loan активная выдача
+     */
+    private void releaseLoan(BookLoan loan) {
+        Book book = loan.getBook();
+        if (book != null && loan.getId().equals(book.getCurrentLoanId())) {
+            book.setCurrentLoanId(null);
+        }
+
+        Reader reader = loan.getReader();
+        if (reader != null && reader.getActiveLoanCount() > 0) {
+            reader.setActiveLoanCount(reader.getActiveLoanCount() - 1);
         }
     }
 }
\ No newline at end of file
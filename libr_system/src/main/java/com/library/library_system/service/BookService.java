@@ -1,17 +1,24 @@
 package com.library.library_system.service;
 
+import com.library.library_system.dto.BookListItem;
 import com.library.library_system.entity.Book;
+import com.library.library_system.event.EntityChangedEvent;
 import com.library.library_system.repository.BookRepository;
-import com.library.library_system.repository.BookLoanRepository;
-import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Сервис для управления книгами.
  */
+@Slf4j
 @Service
 public class BookService {
 
@@ -19,16 +26,17 @@ public class BookService {
     private BookRepository bookRepository;
 
     @Autowired
-    private BookLoanRepository bookLoanRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     /**
-     * Получает все книги.
+     * Получает все книги для списка.
      */
-    public List<Book> getAllBooks() {
+    @Transactional(readOnly = true)
+    public List<BookListItem> getAllBooks() {
         try {
-            return bookRepository.findAll();
+            return bookRepository.findAllListItems();
         } catch (Exception e) {
-            System.err.println("Ошибка при получении книг: " + e.getMessage());
+            log.error("Ошибка при получении книг: {}", e.getMessage());
             return new ArrayList<>();
         }
     }
@@ -37,11 +45,12 @@ public class BookService {
      * Находит книгу по ID.
      * @param id ID книги
      */
+    @Transactional(readOnly = true)
     public Book getBookById(Long id) {
         try {
             return bookRepository.findById(id).orElse(null);
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске книги по ID: " + e.getMessage());
+            log.error("Ошибка при поиске книги по ID: {}", e.getMessage());
             return null;
         }
     }
@@ -64,9 +73,24 @@ public class BookService {
                 }
             }
 
-            return bookRepository.save(book);
+            if (book.getId() == null) {
+                book.setCurrentLoanId(null);
+                Book savedBook = bookRepository.save(book);
+                eventPublisher.publishEvent(new EntityChangedEvent(savedBook, false));
+                return savedBook;
+            }
+
+            Book target = bookRepository.findById(book.getId())
+                    .orElseThrow(() -> new RuntimeException("Книга с ID " + book.getId() + " не найдена"));
+            target.setBookNumber(book.getBookNumber());
+            target.setTitle(book.getTitle());
+            target.setAuthor(book.getAuthor());
+            target.setPublicationYear(book.getPublicationYear());
+            Book savedBook = bookRepository.save(target);
+            eventPublisher.publishEvent(new EntityChangedEvent(savedBook, false));
+            return savedBook;
         } catch (Exception e) {
-            System.err.println("Ошибка при сохранении книги: " + e.getMessage());
+            log.error("Ошибка при сохранении книги: {}", e.getMessage());
             throw new RuntimeException("Не удалось сохранить книгу: " + e.getMessage());
         }
     }
@@ -81,50 +105,47 @@ public class BookService {
             Book book = bookRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Книга с ID " + id + " не найдена"));
 
-            boolean hasActiveLoans = bookLoanRepository.existsActiveLoanByBookId(id);
-
-            if (hasActiveLoans) {
+            if (!book.isAvailable()) {
                 throw new RuntimeException("Нельзя удалить книгу: есть активные выдачи");
             }
 
             bookRepository.delete(book);
-            System.out.println("Книга с ID " + id + " удалена");
+            eventPublisher.publishEvent(new EntityChangedEvent(book, true));
+            log.info("Книга с ID {} удалена", id);
 
         } catch (Exception e) {
-            System.err.println("Ошибка при удалении книги: " + e.getMessage());
+            log.error("Ошибка при удалении книги: {}", e.getMessage());
             throw new RuntimeException("Не удалось удалить книгу: " + e.getMessage());
         }
     }
 
     /**
-     * Ищет книги по ключевому слову.
+     * Ищет книги по названию, автору или номеру без учета регистра.
+     * Совпадения отбираются по индексам и сортируются по релевантности в базе (SearchQuery).
      * @param keyword ключевое слово для поиска
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
      */
-    public List<Book> searchBooks(String keyword) {
+    @Transactional(readOnly = true)
+    public Page<BookListItem> searchBooks(String keyword, int page, int size) {
+        Pageable pageable = SearchQuery.pageable(page, size);
+
         try {
             if (keyword == null || keyword.trim().isEmpty()) {
-                return getAllBooks();
+                return Page.empty(pageable);
             }
 
-            String searchTerm = keyword.trim().toLowerCase();
-            List<Book> allBooks = getAllBooks();
-            List<Book> result = new ArrayList<>();
-
-            for (Book book : allBooks) {
-                if (book.getTitle() != null && book.getTitle().toLowerCase().contains(searchTerm)) {
-                    result.add(book);
-                } else if (book.getAuthor() != null && book.getAuthor().toLowerCase().contains(searchTerm)) {
-                    result.add(book);
-                }
-            }
+            String query = keyword.trim();
+            Page<BookListItem> result = SearchQuery.isSubstring(query)
+                    ? bookRepository.searchContaining(query, SearchQuery.containing(query), pageable)
+                    : bookRepository.searchStartingWith(query, SearchQuery.startingWith(query), pageable);
 
-            System.out.println("Поиск '" + searchTerm + "': найдено " + result.size() + " книг");
+            log.debug("Поиск '{}': найдено {} книг", query, result.getTotalElements());
             return result;
 
         } catch (Exception e) {
-            System.err.println("Ошибка в searchBooks: " + e.getMessage());
-            e.printStackTrace();
-            return getAllBooks();
+            log.error("Ошибка в searchBooks", e);
+            return Page.empty(pageable);
         }
     }
 
@@ -136,24 +157,18 @@ public class BookService {
     }
 
     /**
-     * Получает доступные книги.
+     * Получает страницу доступных книг (без текущей выдачи).
+     * @param page номер страницы (с нуля)
+     * @param size размер страницы
      */
-    public List<Book> getAvailableBooks() {
+    @Transactional(readOnly = true)
+    public Page<Book> getAvailableBooks(int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(size, 1));
         try {
-            List<Book> allBooks = getAllBooks();
-            List<Book> availableBooks = new ArrayList<>();
-
-            for (Book book : allBooks) {
-                boolean hasActiveLoan = bookLoanRepository.existsActiveLoanByBookId(book.getId());
-                if (!hasActiveLoan) {
-                    availableBooks.add(book);
-                }
-            }
-
-            return availableBooks;
+            return bookRepository.findAvailable(pageable);
         } catch (Exception e) {
-            System.err.println("Ошибка получения доступных книг: " + e.getMessage());
-            return getAllBooks();
+            log.error("Ошибка получения доступных книг: {}", e.getMessage());
+            return Page.empty(pageable);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.library.library_system.service;
+
+import com.library.library_system.entity.Book;
+import com.library.library_system.entity.BookLoan;
+import com.library.library_system.entity.Librarian;
+import com.library.library_system.entity.Reader;
+import com.library.library_system.event.EntityChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии данных по типам сущностей.
+ * Счетчик типа увеличивается после фиксации каждого его изменения (EntityChangedEvent)
+ * и после записи в обход событий (импорт, проверка просроченных выдач).
+ * По версии кэши отрисованных страниц понимают, что данные изменились.
+ */
+@Component
+public class DataVersion {
+
+    private final Map<Class<?>, AtomicLong> versions = Map.of(
+            Book.class, new AtomicLong(),
+            Reader.class, new AtomicLong(),
+            Librarian.class, new AtomicLong(),
+            BookLoan.class, new AtomicLong());
+
+    /**
+     * Версия данных нескольких типов: сумма счетчиков, растет при любом их изменении.
+     * Читать версию нужно до загрузки данных, тогда данные не старше версии.
+     * @param types типы сущностей
+     */
+    public long current(Class<?>... types) {
+        long version = 0;
+        for (Class<?> type : types) {
+            version += counter(type).get();
+        }
+        return version;
+    }
+
+    /**
+     * Отмечает изменение данных указанных типов.
+     * @param types типы сущностей
+     */
+    public void bump(Class<?>... types) {
+        for (Class<?> type : types) {
+            counter(type).incrementAndGet();
+        }
+    }
+
+    /**
+     * Отмечает изменение данных всех типов.
+     */
+    public void bumpAll() {
+        versions.values().forEach(AtomicLong::incrementAndGet);
+    }
+
+    /**
+     * Увеличивает версию типа измененной сущности после фиксации транзакции.
+     * @param event событие изменения
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        // isInstance, а не getClass: связи выдачи могут быть ленивыми прокси
+        versions.forEach((type, version) -> {
+            if (type.isInstance(event.getEntity())) {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    private AtomicLong counter(Class<?> type) {
+        AtomicLong version = versions.get(type);
+        if (version == null) {
+            throw new IllegalArgumentException("Нет версии данных для типа " + type.getSimpleName());
+        }
+        return version;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.library.library_system.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Запрос не дождался свободного соединения с базой (DatabaseConcurrencyLimiter).
+ * Если контроллер его не обработал, клиент получает 503 и может повторить запрос.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DatabaseBusyException extends RuntimeException {
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.library.library_system.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение числа одновременных обращений к базе: транзакционных методов сервисов
+ * и вызовов репозиториев вне их. Разрешение берется до начала транзакции (аспект
+ * выполняется раньше TransactionInterceptor) и возвращается после ее завершения.
+ * Лишние запросы ждут в очереди семафора: на виртуальных потоках ожидание почти
+ * ничего не стоит, а пул Hikari не получает тысячи ждущих потоков.
+ * Вложенные вызовы в том же потоке используют уже полученное разрешение.
+ * Потоковые выгрузки (CSV и JSON-массив всех строк) держат транзакцию и соединение,
+ * пока клиент читает ответ, поэтому берут разрешение из отдельного небольшого семафора
+ * и не занимают разрешения страниц и выдач.
+ * Разрешений обоих семафоров немного меньше, чем соединений в пуле: остаток - для работы
+ * с базой мимо аспекта (импорт через JdbcTemplate, проверка health, Flyway).
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseConcurrencyLimiter {
+
+    public static final String WAITING_GAUGE = "library.db.limiter.waiting";
+
+    public static final String AVAILABLE_GAUGE = "library.db.limiter.available";
+
+    public static final String EXPORTS_AVAILABLE_GAUGE = "library.db.limiter.exports.available";
+
+    private static final ThreadLocal<Boolean> HOLDS_PERMIT = new ThreadLocal<>();
+
+    private final Semaphore permits;
+
+    private final Semaphore exportPermits;
+
+    private final Duration acquireTimeout;
+
+    /**
+     * @param maxConcurrency число разрешений для запросов; вместе с maxExportConcurrency
+     *                       не больше размера пула соединений
+     * @param maxExportConcurrency число одновременных потоковых выгрузок
+     * @param acquireTimeout сколько запрос ждет разрешения, прежде чем получить DatabaseBusyException
+     */
+    public DatabaseConcurrencyLimiter(@Value("${library.db.max-concurrency}") int maxConcurrency,
+                                      @Value("${library.db.max-export-concurrency}") int maxExportConcurrency,
+                                      @Value("${library.db.acquire-timeout}") Duration acquireTimeout,
+                                      MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.exportPermits = new Semaphore(maxExportConcurrency, true);
+        this.acquireTimeout = acquireTimeout;
+
+        Gauge.builder(WAITING_GAUGE, permits, Semaphore::getQueueLength)
+                .description("Запросы, ожидающие соединения с базой")
+                .register(meterRegistry);
+        Gauge.builder(AVAILABLE_GAUGE, permits, Semaphore::availablePermits)
+                .description("Свободные разрешения на работу с базой")
+                .register(meterRegistry);
+        Gauge.builder(EXPORTS_AVAILABLE_GAUGE, exportPermits, Semaphore::availablePermits)
+                .description("Свободные разрешения на потоковые выгрузки")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Потоковые выгрузки: время выполнения задает клиент, читающий ответ.
+     */
+    @Pointcut("execution(public * com.library.library_system.service.ExportService.export*(..)) || " +
+            "execution(public * com.library.library_system.service.JsonApiService.writeAll(..))")
+    public void streamingExport() {
+    }
+
+    @Around("(within(com.library.library_system.service..*) && execution(public * *(..)) && " +
+            "(@annotation(org.springframework.transaction.annotation.Transactional) || " +
+            "@within(org.springframework.transaction.annotation.Transactional)) && !streamingExport()) || " +
+            "target(org.springframework.data.repository.Repository)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        return proceedWithPermit(joinPoint, permits, "База данных перегружена, повторите запрос позже");
+    }
+
+    @Around("streamingExport()")
+    public Object limitExport(ProceedingJoinPoint joinPoint) throws Throwable {
+        return proceedWithPermit(joinPoint, exportPermits, "Слишком много одновременных выгрузок, повторите позже");
+    }
+
+    private Object proceedWithPermit(ProceedingJoinPoint joinPoint, Semaphore semaphore, String busyMessage) throws Throwable {
+        if (HOLDS_PERMIT.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        if (!semaphore.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Нет свободного соединения с базой за {} мс: {}, в очереди {}",
+                    acquireTimeout.toMillis(), joinPoint.getSignature().toShortString(), semaphore.getQueueLength());
+            throw new DatabaseBusyException(busyMessage);
+        }
+        HOLDS_PERMIT.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            HOLDS_PERMIT.remove();
+            semaphore.release();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.library.library_system.service;
+
+import lombok.Getter;
+
+/**
+ * Исключение при нарушении уникальности поля.
+ * Содержит имя поля формы, чтобы контроллер мог показать ошибку рядом с ним.
+ */
+@Getter
+public class DuplicateValueException extends RuntimeException {
+
+    private final String field;
+
+    public DuplicateValueException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+}
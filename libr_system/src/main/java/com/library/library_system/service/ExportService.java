@@ -0,0 +1,137 @@
+package com.library.library_system.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Выгрузка истории выдач и каталога в CSV.
+ * Строки читаются курсором (forward-only, порциями по FETCH_SIZE) и сразу
+ * пишутся в поток ответа, поэтому память не зависит от размера таблиц.
+ * Заголовки столбцов совпадают с полями импорта (ImportService).
+ * Транзакция и соединение заняты, пока клиент читает ответ, поэтому выгрузки
+ * ограничиваются отдельно (DatabaseConcurrencyLimiter, library.db.max-export-concurrency)
+ * и не занимают разрешения страниц и выдач.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    static final int FETCH_SIZE = 1000;
+
+    /**
+     * Метка порядка байтов: по ней Excel открывает CSV в UTF-8.
+     */
+    private static final String UTF8_BOM = "\uFEFF";
+
+    private static final String LOANS_SQL = "SELECT bl.loan_id, b.book_number, b.title, r.ticket_number, r.full_name, " +
+            "l.librarian_number, bl.loan_date, bl.due_date, bl.return_date, bl.overdue " +
+            "FROM book_loans bl " +
+            "JOIN books b ON b.book_id = bl.book_id " +
+            "JOIN readers r ON r.reader_id = bl.reader_id " +
+            "JOIN librarians l ON l.librarian_id = bl.librarian_id " +
+            "ORDER BY bl.loan_id";
+
+    private static final String BOOKS_SQL = "SELECT book_id, book_number, title, author, publication_year, " +
+            "current_loan_id IS NULL AS available FROM books ORDER BY book_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Выгружает все выдачи.
+     * @param out поток ответа
+     * @return количество строк
+     */
+    public long exportLoans(OutputStream out) throws IOException {
+        return export("выдач", out, LOANS_SQL,
+                new String[]{"loanId", "bookNumber", "title", "ticketNumber", "readerFullName",
+                        "librarianNumber", "loanDate", "dueDate", "returnDate", "overdue"});
+    }
+
+    /**
+     * Выгружает каталог книг.
+     * @param out поток ответа
+     * @return количество строк
+     */
+    public long exportBooks(OutputStream out) throws IOException {
+        return export("книг", out, BOOKS_SQL,
+                new String[]{"bookId", "bookNumber", "title", "author", "publicationYear", "available"});
+    }
+
+    private long export(String description, OutputStream out, String sql, String[] header) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(UTF8_BOM);
+        writeRow(writer, header);
+
+        long[] rows = new long[1];
+        String[] values = new String[header.length];
+        RowCallbackHandler handler = rs -> {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = text(rs, i + 1);
+            }
+            try {
+                writeRow(writer, values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        };
+
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, handler);
+        } catch (UncheckedIOException e) {
+            log.info("Выгрузка {} прервана после {} строк: {}", description, rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+
+        log.info("Выгрузка {}: {} строк за {} мс", description, rows[0], System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private static String text(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        return value != null ? value.toString() : "";
+    }
+
+    /**
+     * Пишет строку CSV; значения с запятой, кавычкой или переводом строки берутся в кавычки.
+     */
+    private static void writeRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
\ No newline at end of file
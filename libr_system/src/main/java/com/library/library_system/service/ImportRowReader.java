@@ -0,0 +1,194 @@
+package com.library.library_system.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Построчное чтение импортируемых данных: строка - значения по именам полей.
+ * Данные читаются потоком, в памяти держится только текущая строка.
+ */
+abstract class ImportRowReader implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * @param format csv или json
+     * @param input данные
+     */
+    static ImportRowReader open(String format, InputStream input) throws IOException {
+        return switch (format) {
+            case "csv" -> new Csv(input);
+            case "json" -> new Json(input);
+            default -> throw new IllegalArgumentException("Неизвестный формат импорта: " + format);
+        };
+    }
+
+    /**
+     * Следующая строка или null в конце данных.
+     */
+    abstract Map<String, String> next() throws IOException;
+
+    /**
+     * CSV с заголовком (RFC 4180): значения в кавычках могут содержать
+     * разделитель, кавычки ("") и переводы строк. Разделитель - запятая
+     * или точка с запятой (определяется по заголовку).
+     */
+    static class Csv extends ImportRowReader {
+
+        private static final int HEADER_READ_AHEAD = 64 * 1024;
+
+        private final BufferedReader reader;
+
+        private final char separator;
+
+        private final List<String> header;
+
+        Csv(InputStream input) throws IOException {
+            reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+            reader.mark(HEADER_READ_AHEAD);
+            String firstLine = reader.readLine();
+            if (firstLine == null) {
+                throw new IOException("Пустой CSV: нет строки заголовка");
+            }
+            separator = count(firstLine, ';') > count(firstLine, ',') ? ';' : ',';
+            reader.reset();
+
+            header = new ArrayList<>();
+            for (String name : readRecord()) {
+                header.add(name.replace("\uFEFF", "").trim());
+            }
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isBlank());
+
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), i < values.size() ? values.get(i) : null);
+            }
+            return row;
+        }
+
+        /**
+         * Читает одну запись; null в конце данных.
+         */
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Незакрытая кавычка в CSV");
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+
+        private static int count(String line, char ch) {
+            int count = 0;
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == ch) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * JSON-массив объектов с простыми значениями; разбирается потоковым парсером
+     * по одному объекту, весь документ в память не загружается.
+     */
+    static class Json extends ImportRowReader {
+
+        private final JsonParser parser;
+
+        Json(InputStream input) throws IOException {
+            parser = JSON_FACTORY.createParser(input);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидается JSON-массив объектов");
+            }
+        }
+
+        @Override
+        Map<String, String> next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Ожидается JSON-объект, найдено: " + token);
+            }
+
+            Map<String, String> row = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                    row.put(name, null);
+                } else {
+                    row.put(name, value == JsonToken.VALUE_NULL ? null : parser.getValueAsString());
+                }
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,438 @@
+package com.library.library_system.service;
+
+import com.library.library_system.dto.ImportReport;
+import com.library.library_system.entity.Book;
+import com.library.library_system.entity.BookLoan;
+import com.library.library_system.entity.IdGeneration;
+import com.library.library_system.entity.Reader;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.FutureOrPresent;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Массовый импорт книг, читателей и истории выдач из CSV или JSON.
+ * Данные читаются потоком и вставляются порциями по CHUNK_SIZE строк
+ * пакетными JDBC-вставками, каждая порция - в своей транзакции.
+ * ID берутся из тех же последовательностей, что и у Hibernate, блоками (IdGeneration).
+ * Строки проверяются ограничениями Bean Validation сущностей, дубликаты
+ * номеров отсекаются по множествам, загруженным из базы перед импортом.
+ */
+@Slf4j
+@Service
+public class ImportService {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_BOOK = "INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+            "VALUES (?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_READER = "INSERT INTO readers " +
+            "(reader_id, ticket_number, full_name, phone_number, registration_date, active_loan_count, version) " +
+            "VALUES (?, ?, ?, ?, ?, 0, 0)";
+
+    private static final String INSERT_LOAN = "INSERT INTO book_loans " +
+            "(loan_id, book_id, reader_id, librarian_id, loan_date, due_date, return_date, overdue) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private LookupService lookupService;
+
+    @Autowired
+    private LoanCounterCache loanCounterCache;
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @Autowired
+    private OverdueLoanSweeper overdueLoanSweeper;
+
+    /**
+     * Строка истории выдач с найденными по номерам ID.
+     */
+    private record LoanRow(long bookId, long readerId, long librarianId,
+                           LocalDate loanDate, LocalDate dueDate, LocalDate returnDate) {
+    }
+
+    /**
+     * Строка отклонена: ошибка проверки или дубликат уже существующего номера.
+     */
+    private static class RowRejectedException extends RuntimeException {
+
+        private final boolean duplicate;
+
+        RowRejectedException(String message, boolean duplicate) {
+            super(message);
+            this.duplicate = duplicate;
+        }
+    }
+
+    /**
+     * Импортирует данные.
+     * @param type books, readers или loans
+     * @param format csv или json
+     * @param input данные; заголовок CSV и ключи JSON - имена полей сущностей
+     *              (для выдач - bookNumber, ticketNumber, librarianNumber, loanDate, dueDate, returnDate)
+     */
+    public ImportReport importData(String type, String format, InputStream input) {
+        if (!"books".equals(type) && !"readers".equals(type) && !"loans".equals(type)) {
+            throw new IllegalArgumentException("Неизвестный тип импорта: " + type);
+        }
+
+        long start = System.currentTimeMillis();
+        ImportReport report = new ImportReport(type);
+        try (ImportRowReader reader = ImportRowReader.open(format, input)) {
+            switch (type) {
+                case "books" -> importBooks(reader, report);
+                case "readers" -> importReaders(reader, report);
+                default -> importLoans(reader, report);
+            }
+        } catch (IOException e) {
+            log.warn("Импорт прерван на строке {}: {}", report.getProcessed(), e.getMessage());
+            report.abort("Ошибка чтения данных после строки " + report.getProcessed() + ": " + e.getMessage());
+        } finally {
+            if (report.getImported() > 0) {
+                refreshAfterImport(type);
+            }
+        }
+
+        report.finish(System.currentTimeMillis() - start);
+        log.info("Импорт {} за {} мс: обработано {}, загружено {}, пропущено {}, ошибок {}",
+                type, report.getDurationMs(), report.getProcessed(), report.getImported(),
+                report.getSkipped(), report.getFailed());
+        return report;
+    }
+
+    private void importBooks(ImportRowReader reader, ImportReport report) throws IOException {
+        Set<String> bookNumbers = new HashSet<>(jdbcTemplate.queryForList("SELECT book_number FROM books", String.class));
+
+        importRows(reader, report, INSERT_BOOK, Book.ID_SEQUENCE, row -> {
+            Book book = new Book();
+            book.setBookNumber(text(row, "bookNumber"));
+            book.setTitle(text(row, "title"));
+            book.setAuthor(text(row, "author"));
+            book.setPublicationYear(integer(row, "publicationYear", "Год издания"));
+            validate(book);
+
+            if (!bookNumbers.add(book.getBookNumber())) {
+                throw new RowRejectedException("Книга с номером '" + book.getBookNumber() + "' уже существует", true);
+            }
+            return book;
+        }, (ps, book) -> {
+            ps.setString(2, book.getBookNumber());
+            ps.setString(3, book.getTitle());
+            ps.setString(4, book.getAuthor());
+            ps.setInt(5, book.getPublicationYear());
+        });
+    }
+
+    private void importReaders(ImportRowReader reader, ImportReport report) throws IOException {
+        Set<String> ticketNumbers = new HashSet<>(jdbcTemplate.queryForList("SELECT ticket_number FROM readers", String.class));
+        Set<String> phoneNumbers = new HashSet<>(jdbcTemplate.queryForList("SELECT phone_number FROM readers", String.class));
+
+        importRows(reader, report, INSERT_READER, Reader.ID_SEQUENCE, row -> {
+            Reader newReader = new Reader();
+            newReader.setTicketNumber(text(row, "ticketNumber"));
+            newReader.setFullName(text(row, "fullName"));
+            newReader.setPhoneNumber(text(row, "phoneNumber"));
+            LocalDate registrationDate = date(row, "registrationDate", "Дата регистрации");
+            newReader.setRegistrationDate(Date.valueOf(registrationDate != null ? registrationDate : LocalDate.now()));
+            validate(newReader);
+
+            if (ticketNumbers.contains(newReader.getTicketNumber())) {
+                throw new RowRejectedException("Читатель с билетом '" + newReader.getTicketNumber() + "' уже существует", true);
+            }
+            if (phoneNumbers.contains(newReader.getPhoneNumber())) {
+                throw new RowRejectedException("Номер телефона '" + newReader.getPhoneNumber() + "' уже используется другим читателем", true);
+            }
+            ticketNumbers.add(newReader.getTicketNumber());
+            phoneNumbers.add(newReader.getPhoneNumber());
+            return newReader;
+        }, (ps, newReader) -> {
+            ps.setString(2, newReader.getTicketNumber());
+            ps.setString(3, newReader.getFullName());
+            ps.setString(4, newReader.getPhoneNumber());
+            ps.setDate(5, newReader.getRegistrationDate());
+        });
+    }
+
+    /**
+     * Импорт истории выдач. Книга, читатель и библиотекарь ищутся по номерам;
+     * невозвращенная выдача отклоняется, если книга уже выдана.
+     */
+    private void importLoans(ImportRowReader reader, ImportReport report) throws IOException {
+        Map<String, Long> bookIds = loadIds("SELECT book_number, book_id FROM books");
+        Map<String, Long> readerIds = loadIds("SELECT ticket_number, reader_id FROM readers");
+        Map<String, Long> librarianIds = loadIds("SELECT librarian_number, librarian_id FROM librarians");
+        Set<Long> loanedBookIds = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT book_id FROM books WHERE current_loan_id IS NOT NULL", Long.class));
+        LocalDate today = LocalDate.now();
+
+        importRows(reader, report, INSERT_LOAN, BookLoan.ID_SEQUENCE, row -> {
+            Long bookId = resolve(bookIds, text(row, "bookNumber"),
+                    "Номер книги обязателен", "Книга с номером '%s' не найдена");
+            Long readerId = resolve(readerIds, text(row, "ticketNumber"),
+                    "Номер читательского билета обязателен", "Читатель с билетом '%s' не найден");
+            Long librarianId = resolve(librarianIds, text(row, "librarianNumber"),
+                    "Номер библиотекаря обязателен", "Библиотекарь с номером '%s' не найден");
+
+            BookLoan loan = new BookLoan();
+            loan.setLoanDate(date(row, "loanDate", "Дата выдачи"));
+            loan.setDueDate(date(row, "dueDate", "Срок возврата"));
+            loan.setReturnDate(date(row, "returnDate", "Дата возврата"));
+            Set<ConstraintViolation<BookLoan>> violations = new HashSet<>(validator.validateProperty(loan, "loanDate"));
+            violations.addAll(validator.validateProperty(loan, "dueDate"));
+            // Срок возврата в истории выдач обычно в прошлом: @FutureOrPresent здесь не проверяется
+            violations.removeIf(violation -> violation.getConstraintDescriptor().getAnnotation() instanceof FutureOrPresent);
+            rejectIfInvalid(violations);
+
+            if (loan.getDueDate().isBefore(loan.getLoanDate())) {
+                throw new RowRejectedException("Срок возврата раньше даты выдачи", false);
+            }
+            if (loan.getReturnDate() != null && loan.getReturnDate().isBefore(loan.getLoanDate())) {
+                throw new RowRejectedException("Дата возврата раньше даты выдачи", false);
+            }
+            if (loan.getReturnDate() == null && !loanedBookIds.add(bookId)) {
+                throw new RowRejectedException("Книга '" + text(row, "bookNumber") + "' уже выдана", false);
+            }
+            return new LoanRow(bookId, readerId, librarianId, loan.getLoanDate(), loan.getDueDate(), loan.getReturnDate());
+        }, (ps, loan) -> {
+            ps.setLong(2, loan.bookId());
+            ps.setLong(3, loan.readerId());
+            ps.setLong(4, loan.librarianId());
+            ps.setObject(5, loan.loanDate());
+            ps.setObject(6, loan.dueDate());
+            ps.setObject(7, loan.returnDate());
+            ps.setBoolean(8, loan.returnDate() != null
+                    ? loan.returnDate().isAfter(loan.dueDate())
+                    : loan.dueDate().isBefore(today));
+        });
+
+        // Отметки о выдаче у книг и счетчики активных выдач читателей - одним запросом на таблицу
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE books b SET current_loan_id = bl.loan_id, version = b.version + 1 " +
+                    "FROM book_loans bl WHERE bl.book_id = b.book_id AND bl.return_date IS NULL " +
+                    "AND b.current_loan_id IS NULL");
+            jdbcTemplate.update("UPDATE readers r SET active_loan_count = c.cnt, version = r.version + 1 " +
+                    "FROM (SELECT reader_id, count(*) AS cnt FROM book_loans WHERE return_date IS NULL " +
+                    "GROUP BY reader_id) c " +
+                    "WHERE c.reader_id = r.reader_id AND r.active_loan_count <> c.cnt");
+        });
+    }
+
+    /**
+     * Читает строки, преобразует их и вставляет порциями.
+     * Если пакетная вставка порции отклонена базой, строки порции
+     * вставляются по одной, чтобы найти и сообщить ошибочные.
+     * @param insertSql вставка; первый параметр - ID из последовательности sequence,
+     *                  остальные заполняет setter
+     */
+    private <T> void importRows(ImportRowReader reader, ImportReport report, String insertSql, String sequence,
+                                Function<Map<String, String>, T> parser,
+                                ParameterizedPreparedStatementSetter<T> setter) throws IOException {
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Long> chunkRows = new ArrayList<>(CHUNK_SIZE);
+
+        Map<String, String> row;
+        while ((row = reader.next()) != null) {
+            long rowNumber = report.nextRow();
+            try {
+                chunk.add(parser.apply(row));
+                chunkRows.add(rowNumber);
+            } catch (RowRejectedException e) {
+                if (e.duplicate) {
+                    report.addSkipped(rowNumber, e.getMessage());
+                } else {
+                    report.addFailed(rowNumber, e.getMessage());
+                }
+            }
+
+            if (chunk.size() >= CHUNK_SIZE) {
+                insertChunk(insertSql, sequence, chunk, chunkRows, setter, report);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(insertSql, sequence, chunk, chunkRows, setter, report);
+        }
+    }
+
+    private <T> void insertChunk(String insertSql, String sequence, List<T> chunk, List<Long> chunkRows,
+                                 ParameterizedPreparedStatementSetter<T> setter, ImportReport report) {
+        List<Long> ids = allocateIds(sequence, chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, ids.get(i));
+                            setter.setValues(ps, chunk.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    }));
+            report.addImported(chunk.size());
+        } catch (DataAccessException e) {
+            log.warn("Пакетная вставка отклонена, вставка по одной строке: {}", e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                T item = chunk.get(i);
+                long id = ids.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            jdbcTemplate.update(insertSql, ps -> {
+                                ps.setLong(1, id);
+                                setter.setValues(ps, item);
+                            }));
+                    report.addImported(1);
+                } catch (DataAccessException rowError) {
+                    report.addFailed(chunkRows.get(i), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        log.info("Импорт {}: обработано {}, загружено {}, пропущено {}, ошибок {}", report.getType(),
+                report.getProcessed(), report.getImported(), report.getSkipped(), report.getFailed());
+        chunk.clear();
+        chunkRows.clear();
+    }
+
+    /**
+     * ID для порции: одно значение последовательности дает блок из
+     * IdGeneration.ALLOCATION_SIZE ID, как у Hibernate (pooled-lo).
+     */
+    private List<Long> allocateIds(String sequence, int count) {
+        int blocks = (count + IdGeneration.ALLOCATION_SIZE - 1) / IdGeneration.ALLOCATION_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        for (Long first : jdbcTemplate.queryForList("SELECT nextval(?::regclass) FROM generate_series(1, ?)",
+                Long.class, sequence, blocks)) {
+            for (int i = 0; i < IdGeneration.ALLOCATION_SIZE && ids.size() < count; i++) {
+                ids.add(first + i);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Обновляет кэши, которые импорт обошел, записывая в базу напрямую через JDBC.
+     */
+    private void refreshAfterImport(String type) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        lookupService.warmUp();
+        dataVersion.bumpAll();
+        if ("loans".equals(type)) {
+            loanCounterCache.invalidate();
+            overdueLoanSweeper.sweep();
+        }
+    }
+
+    private Map<String, Long> loadIds(String sql) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            ids.put(rs.getString(1), rs.getLong(2));
+        });
+        return ids;
+    }
+
+    /**
+     * ID по номеру из загруженного справочника.
+     * @param missingMessage сообщение, если номер не указан
+     * @param notFoundMessage шаблон сообщения, если номер не найден
+     */
+    private static Long resolve(Map<String, Long> ids, String number, String missingMessage, String notFoundMessage) {
+        if (number == null) {
+            throw new RowRejectedException(missingMessage, false);
+        }
+        Long id = ids.get(number);
+        if (id == null) {
+            throw new RowRejectedException(String.format(notFoundMessage, number), false);
+        }
+        return id;
+    }
+
+    /**
+     * Проверяет ограничения Bean Validation сущности.
+     */
+    private <T> void validate(T entity) {
+        rejectIfInvalid(validator.validate(entity));
+    }
+
+    private static void rejectIfInvalid(Set<? extends ConstraintViolation<?>> violations) {
+        if (!violations.isEmpty()) {
+            throw new RowRejectedException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")), false);
+        }
+    }
+
+    private static String text(Map<String, String> row, String field) {
+        String value = row.get(field);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer integer(Map<String, String> row, String field, String description) {
+        String value = text(row, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RowRejectedException(description + " должен быть числом: '" + value + "'", false);
+        }
+    }
+
+    private static LocalDate date(Map<String, String> row, String field, String description) {
+        String value = text(row, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new RowRejectedException(description + " должна быть в формате ГГГГ-ММ-ДД: '" + value + "'", false);
+        }
+    }
+}
\ No newline at end of file
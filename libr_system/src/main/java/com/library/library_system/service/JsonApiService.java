@@ -0,0 +1,344 @@
+package com.library.library_system.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Чтение данных для REST API (/api/v1) в JSON.
+ * Запрос выбирает только запрошенные поля, строки читаются JDBC и сразу пишутся
+ * в поток ответа через JsonGenerator, без загрузки сущностей и промежуточных объектов.
+ * Поле id возвращается всегда: по нему строится курсор следующей страницы.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class JsonApiService {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public static final int MAX_BULK_IDS = 1000;
+
+    /**
+     * Ресурсы API: таблицы и поля JSON с выражениями SQL.
+     */
+    public enum Resource {
+        BOOKS("books", "books b", "b.book_id", fields(
+                "id", "b.book_id",
+                "bookNumber", "b.book_number",
+                "title", "b.title",
+                "author", "b.author",
+                "publicationYear", "b.publication_year",
+                "available", "b.current_loan_id IS NULL")),
+        READERS("readers", "readers r", "r.reader_id", fields(
+                "id", "r.reader_id",
+                "ticketNumber", "r.ticket_number",
+                "fullName", "r.full_name",
+                "phoneNumber", "r.phone_number",
+                "registrationDate", "r.registration_date",
+                "activeLoanCount", "r.active_loan_count")),
+        LIBRARIANS("librarians", "librarians l", "l.librarian_id", fields(
+                "id", "l.librarian_id",
+                "librarianNumber", "l.librarian_number",
+                "fullName", "l.full_name",
+                "position", "l.position")),
+        LOANS("loans", "book_loans bl " +
+                "JOIN books b ON b.book_id = bl.book_id " +
+                "JOIN readers r ON r.reader_id = bl.reader_id " +
+                "JOIN librarians l ON l.librarian_id = bl.librarian_id", "bl.loan_id", fields(
+                "id", "bl.loan_id",
+                "bookId", "bl.book_id",
+                "bookNumber", "b.book_number",
+                "bookTitle", "b.title",
+                "readerId", "bl.reader_id",
+                "ticketNumber", "r.ticket_number",
+                "readerFullName", "r.full_name",
+                "librarianId", "bl.librarian_id",
+                "librarianNumber", "l.librarian_number",
+                "loanDate", "bl.loan_date",
+                "dueDate", "bl.due_date",
+                "returnDate", "bl.return_date",
+                "overdue", "bl.overdue"));
+
+        private final String path;
+
+        private final String from;
+
+        private final String idColumn;
+
+        private final Map<String, String> fields;
+
+        Resource(String path, String from, String idColumn, Map<String, String> fields) {
+            this.path = path;
+            this.from = from;
+            this.idColumn = idColumn;
+            this.fields = fields;
+        }
+
+        /**
+         * Ресурс по сегменту пути (/api/v1/books - books).
+         * @return ресурс или null, если такого нет
+         */
+        public static Resource fromPath(String path) {
+            for (Resource resource : values()) {
+                if (resource.path.equals(path)) {
+                    return resource;
+                }
+            }
+            return null;
+        }
+
+        private static Map<String, String> fields(String... pairs) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < pairs.length; i += 2) {
+                fields.put(pairs[i], pairs[i + 1]);
+            }
+            return fields;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Проверяет запрошенные поля.
+     * @param resource ресурс
+     * @param fields поля через запятую; пусто - все поля
+     * @return поля в порядке запроса, id первым
+     * @throws IllegalArgumentException если поле неизвестно
+     */
+    public List<String> selectFields(Resource resource, String fields) {
+        if (fields == null || fields.isBlank()) {
+            return new ArrayList<>(resource.fields.keySet());
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!resource.fields.containsKey(name)) {
+                throw new IllegalArgumentException("Неизвестное поле '" + name + "', доступны: "
+                        + String.join(",", resource.fields.keySet()));
+            }
+            selected.add(name);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * Страница по ключу id: {"items": [...], "size": n, "nextAfter": id или null}.
+     * Читается на одну строку больше размера страницы - так известно, есть ли следующая.
+     * @param afterId id последней строки предыдущей страницы (null - с начала)
+     * @param size размер страницы (1..MAX_PAGE_SIZE)
+     */
+    public void writePage(Resource resource, List<String> fields, Long afterId, int size, OutputStream out) throws IOException {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        String sql = select(resource, fields) + " WHERE " + resource.idColumn + " > ? ORDER BY " + resource.idColumn + " LIMIT ?";
+
+        JsonGenerator json = generator(out);
+        json.writeStartObject();
+        json.writeArrayFieldStart("items");
+        long[] last = new long[1];
+        int[] rows = new int[1];
+        query(sql, 0, rs -> {
+            if (rows[0] < limit) {
+                writeRow(json, fields, rs);
+                last[0] = rs.getLong(1);
+            }
+            rows[0]++;
+        }, afterId != null ? afterId : Long.MIN_VALUE, limit + 1);
+        json.writeEndArray();
+        json.writeNumberField("size", Math.min(rows[0], limit));
+        if (rows[0] > limit) {
+            json.writeNumberField("nextAfter", last[0]);
+        } else {
+            json.writeNullField("nextAfter");
+        }
+        json.writeEndObject();
+        json.close();
+    }
+
+    /**
+     * Строки по списку id: {"items": [...], "missing": [id, ...]}, строки по возрастанию id.
+     * @param ids до MAX_BULK_IDS значений
+     * @throws IllegalArgumentException если id больше MAX_BULK_IDS
+     */
+    public void writeByIds(Resource resource, List<String> fields, List<Long> ids, OutputStream out) throws IOException {
+        if (ids.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("Не больше " + MAX_BULK_IDS + " id в одном запросе, передано " + ids.size());
+        }
+        Set<Long> missing = new TreeSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                missing.add(id);
+            }
+        }
+        String sql = select(resource, fields) + " WHERE " + resource.idColumn + " = ANY(?) ORDER BY " + resource.idColumn;
+
+        JsonGenerator json = generator(out);
+        json.writeStartObject();
+        json.writeArrayFieldStart("items");
+        if (!missing.isEmpty()) {
+            query(sql, 0, rs -> {
+                writeRow(json, fields, rs);
+                missing.remove(rs.getLong(1));
+            }, (Object) missing.toArray(new Long[0]));
+        }
+        json.writeEndArray();
+        json.writeArrayFieldStart("missing");
+        for (Long id : missing) {
+            json.writeNumber(id);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.close();
+    }
+
+    /**
+     * Одна строка по id.
+     * @return false, если строки нет (в поток ничего не записано)
+     */
+    public boolean writeOne(Resource resource, List<String> fields, Long id, OutputStream out) throws IOException {
+        String sql = select(resource, fields) + " WHERE " + resource.idColumn + " = ?";
+        JsonGenerator json = generator(out);
+        boolean[] found = new boolean[1];
+        query(sql, 0, rs -> {
+            writeRow(json, fields, rs);
+            found[0] = true;
+        }, id);
+        json.close();
+        return found[0];
+    }
+
+    /**
+     * Все строки ресурса JSON-массивом в порядке id. Строки читаются курсором
+     * порциями по ExportService.FETCH_SIZE, поэтому память не зависит от размера таблицы.
+     * @return количество строк
+     */
+    public long writeAll(Resource resource, List<String> fields, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        String sql = select(resource, fields) + " ORDER BY " + resource.idColumn;
+
+        JsonGenerator json = generator(out);
+        json.writeStartArray();
+        long[] rows = new long[1];
+        try {
+            query(sql, ExportService.FETCH_SIZE, rs -> {
+                writeRow(json, fields, rs);
+                rows[0]++;
+            });
+        } catch (IOException e) {
+            log.info("Выгрузка {} в JSON прервана после {} строк: {}", resource.path, rows[0], e.getMessage());
+            throw e;
+        }
+        json.writeEndArray();
+        json.close();
+
+        log.info("Выгрузка {} в JSON: {} строк за {} мс", resource.path, rows[0], System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Выполняет запрос, передавая строки в writer; IOException записи в поток пробрасывается как есть.
+     * Массив Long[] передается параметром-массивом PostgreSQL (для = ANY(?)).
+     */
+    private void query(String sql, int fetchSize, RowWriter writer, Object... args) throws IOException {
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize > 0) {
+                    ps.setFetchSize(fetchSize);
+                }
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] instanceof Long[] array) {
+                        ps.setArray(i + 1, con.createArrayOf("bigint", array));
+                    } else {
+                        ps.setObject(i + 1, args[i]);
+                    }
+                }
+                return ps;
+            }, (ResultSet rs) -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String select(Resource resource, List<String> fields) {
+        List<String> columns = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            columns.add(resource.fields.get(field));
+        }
+        return "SELECT " + String.join(", ", columns) + " FROM " + resource.from;
+    }
+
+    /**
+     * Генератор не закрывает и не сбрасывает поток ответа: сброс фиксирует статус ответа,
+     * а при отсутствии строки контроллер должен успеть ответить 404.
+     */
+    private JsonGenerator generator(OutputStream out) throws IOException {
+        return objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    /**
+     * Пишет строку объектом JSON: числа и логические значения как есть, даты в ISO-8601.
+     */
+    private static void writeRow(JsonGenerator json, List<String> fields, ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        for (int i = 0; i < fields.size(); i++) {
+            json.writeFieldName(fields.get(i));
+            Object value = rs.getObject(i + 1);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof Long number) {
+                json.writeNumber(number);
+            } else if (value instanceof Integer number) {
+                json.writeNumber(number);
+            } else if (value instanceof Boolean flag) {
+                json.writeBoolean(flag);
+            } else if (value instanceof Date date) {
+                json.writeString(date.toLocalDate().toString());
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+        json.writeEndObject();
+    }
+}
\ No newline at end of file
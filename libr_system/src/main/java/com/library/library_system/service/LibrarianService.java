@@ -1,17 +1,24 @@
 package com.library.library_system.service;
 
+import com.library.library_system.dto.LibrarianListItem;
 import com.library.library_system.entity.Librarian;
+import com.library.library_system.event.EntityChangedEvent;
 import com.library.library_system.repository.LibrarianRepository;
 import com.library.library_system.repository.BookLoanRepository;
-import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Сервис для управления библиотекарями.
  */
+@Slf4j
 @Service
 public class LibrarianService {
 
@@ -21,14 +28,18 @@ public class LibrarianService {
     @Autowired
     private BookLoanRepository bookLoanRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
-     * Получает всех библиотекарей.
+     * Получает всех библиотекарей для списка.
      */
-    public List<Librarian> getAllLibrarians() {
+    @Transactional(readOnly = true)
+    public List<LibrarianListItem> getAllLibrarians() {
         try {
-            return librarianRepository.findAll();
+            return librarianRepository.findAllListItems();
         } catch (Exception e) {
-            System.err.println("Ошибка при получении библиотекарей: " + e.getMessage());
+            log.error("Ошибка при получении библиотекарей: {}", e.getMessage());
             return new ArrayList<>();
         }
     }
@@ -37,11 +48,12 @@ public class LibrarianService {
      * Находит библиотекаря по ID.
      * @param id ID библиотекаря
      */
+    @Transactional(readOnly = true)
     public Librarian getLibrarianById(Long id) {
         try {
             return librarianRepository.findById(id).orElse(null);
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске библиотекаря по ID: " + e.getMessage());
+            log.error("Ошибка при поиске библиотекаря по ID: {}", e.getMessage());
             return null;
         }
     }
@@ -64,9 +76,11 @@ public class LibrarianService {
                 }
             }
 
-            return librarianRepository.save(librarian);
+            Librarian savedLibrarian = librarianRepository.save(librarian);
+            eventPublisher.publishEvent(new EntityChangedEvent(savedLibrarian, false));
+            return savedLibrarian;
         } catch (Exception e) {
-            System.err.println("Ошибка при сохранении библиотекаря: " + e.getMessage());
+            log.error("Ошибка при сохранении библиотекаря: {}", e.getMessage());
             throw new RuntimeException("Не удалось сохранить библиотекаря: " + e.getMessage());
         }
     }
@@ -81,46 +95,47 @@ public class LibrarianService {
             Librarian librarian = librarianRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Библиотекарь с ID " + id + " не найден"));
 
-            boolean hasLoans = !bookLoanRepository.findByLibrarianId(id).isEmpty();
-
-            if (hasLoans) {
+            if (bookLoanRepository.existsByLibrarianId(id)) {
                 throw new RuntimeException("Нельзя удалить библиотекаря: у него есть записи о выдаче книг");
             }
 
             librarianRepository.delete(librarian);
-            System.out.println("Библиотекарь с ID " + id + " удален");
+            eventPublisher.publishEvent(new EntityChangedEvent(librarian, true));
+            log.info("Библиотекарь с ID {} удален", id);
 
         } catch (Exception e) {
-            System.err.println("Ошибка при удалении библиотекаря: " + e.getMessage());
+            log.error("Ошибка при удалении библиотекаря: {}", e.getMessage());
             throw new RuntimeException("Не удалось удалить библиотекаря: " + e.getMessage());
         }
     }
 
     /**
-     * Ищет библиотекарей по ключевому слову.
+     * Ищет библиотекарей по ФИО без учета регистра.
+     * Совпадения отбираются по индексам и сортируются по релевантности в базе (SearchQuery).
      * @param keyword ключевое слово для поиска
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
      */
-    public List<Librarian> searchLibrarians(String keyword) {
+    @Transactional(readOnly = true)
+    public Page<LibrarianListItem> searchLibrarians(String keyword, int page, int size) {
+        Pageable pageable = SearchQuery.pageable(page, size);
+
         try {
             if (keyword == null || keyword.trim().isEmpty()) {
-                return getAllLibrarians();
+                return Page.empty(pageable);
             }
 
-            String searchTerm = keyword.trim().toLowerCase();
-            List<Librarian> allLibrarians = getAllLibrarians();
-            List<Librarian> result = new ArrayList<>();
-
-            for (Librarian librarian : allLibrarians) {
-                if (librarian.getFullName() != null && librarian.getFullName().toLowerCase().contains(searchTerm)) {
-                    result.add(librarian);
-                }
-            }
+            String query = keyword.trim();
+            Page<LibrarianListItem> result = SearchQuery.isSubstring(query)
+                    ? librarianRepository.searchContaining(query, SearchQuery.containing(query), pageable)
+                    : librarianRepository.searchStartingWith(query, SearchQuery.startingWith(query), pageable);
 
+            log.debug("Поиск '{}': найдено {} библиотекарей", query, result.getTotalElements());
             return result;
 
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске библиотекарей: " + e.getMessage());
-            return getAllLibrarians();
+            log.error("Ошибка при поиске библиотекарей: {}", e.getMessage());
+            return Page.empty(pageable);
         }
     }
 
@@ -0,0 +1,117 @@
+package com.library.library_system.service;
+
+import com.library.library_system.dto.LoanCounts;
+import com.library.library_system.entity.BookLoan;
+import com.library.library_system.repository.BookLoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Кэш счетчиков выдач для вкладок списка.
+ * Загружается одним агрегирующим запросом, затем обновляется приращениями
+ * после фиксации транзакций выдачи, возврата и удаления. Число просроченных
+ * выдач берется из OverdueLoanIndex; пока индекс не построен, оно считается
+ * запросом, и со сменой даты кэш перечитывается.
+ * Счетчики хранятся неизменяемым снимком и заменяются сравнением с обменом:
+ * чтение не блокируется, а запрос к базе при загрузке выполняется без монитора,
+ * поэтому после сброса потоки не ждут друг друга, удерживая соединения.
+ */
+@Slf4j
+@Component
+public class LoanCounterCache {
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private OverdueLoanIndex overdueLoanIndex;
+
+    /**
+     * Загруженные счетчики, дата загрузки и номер загрузки; null - не загружены или сброшены.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * Номер загрузки, увеличивается после каждого запроса к базе и при сбросе.
+     * Приращение, зарегистрированное при другом номере, могло уже попасть
+     * в загруженные значения, поэтому вместо него кэш сбрасывается.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Текущие счетчики; при первом обращении, после сброса или смены даты читаются из базы.
+     */
+    public LoanCounts get() {
+        LocalDate today = LocalDate.now();
+        Snapshot current = snapshot.get();
+        if (current == null || !today.equals(current.date())) {
+            current = load(current, today);
+        }
+        LoanCounts counts = current.counts();
+        if (overdueLoanIndex.isReady()) {
+            return new LoanCounts(counts.getTotal(), counts.getActive(), overdueLoanIndex.size(), counts.getReturned());
+        }
+        return counts;
+    }
+
+    /**
+     * Состояние одной выдачи в виде счетчиков.
+     * @param loan выдача
+     */
+    public static LoanCounts stateOf(BookLoan loan) {
+        boolean active = loan.getReturnDate() == null;
+        boolean overdue = active && loan.getDueDate() != null && loan.getDueDate().isBefore(LocalDate.now());
+        return new LoanCounts(1, active ? 1 : 0, overdue ? 1 : 0, active ? 0 : 1);
+    }
+
+    /**
+     * Применяет приращение после фиксации текущей транзакции.
+     * @param delta изменение счетчиков
+     */
+    public void applyAfterCommit(LoanCounts delta) {
+        long registeredGeneration = generation.get();
+        AfterCommit.run(() -> apply(delta, registeredGeneration));
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot.set(null);
+    }
+
+    /**
+     * Читает счетчики из базы. Результат публикуется, только если за время запроса
+     * не было ни сброса, ни другой загрузки, ни приращения к несовпавшему снимку;
+     * иначе он возвращается вызывающему, а следующее обращение читает заново.
+     * @param stale снимок, который заменяется (null или за прошлую дату)
+     */
+    private Snapshot load(Snapshot stale, LocalDate today) {
+        long started = generation.get();
+        LoanCounts counts = bookLoanRepository.countLoans(today);
+        Snapshot loaded = new Snapshot(counts, today, generation.incrementAndGet());
+        if (loaded.generation() == started + 1) {
+            snapshot.compareAndSet(stale, loaded);
+        }
+        log.debug("Счетчики выдач загружены: всего={}, активных={}, просроченных={}, возвращенных={}",
+                counts.getTotal(), counts.getActive(), counts.getOverdue(), counts.getReturned());
+        return loaded;
+    }
+
+    private void apply(LoanCounts delta, long registeredGeneration) {
+        Snapshot current = snapshot.get();
+        while (current != null && current.generation() == registeredGeneration) {
+            Snapshot updated = new Snapshot(current.counts().plus(delta), current.date(), current.generation());
+            if (snapshot.compareAndSet(current, updated)) {
+                return;
+            }
+            current = snapshot.get();
+        }
+        invalidate();
+    }
+
+    private record Snapshot(LoanCounts counts, LocalDate date, long generation) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.library.library_system.service;
+
+import com.library.library_system.dto.LookupItem;
+import com.library.library_system.entity.Book;
+import com.library.library_system.entity.Librarian;
+import com.library.library_system.entity.Reader;
+import com.library.library_system.event.EntityChangedEvent;
+import com.library.library_system.repository.BookRepository;
+import com.library.library_system.repository.LibrarianRepository;
+import com.library.library_system.repository.ReaderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис подсказок для полей выбора книги, читателя и библиотекаря.
+ * Индексы заполняются при старте приложения и обновляются по событиям
+ * изменения сущностей, поэтому запрос подсказки не обращается к базе.
+ * Здесь же хранятся ID книг и читателей по номерам для выдачи по штрихкодам.
+ * Перезагрузка (warmUp) строит новые индексы в стороне и подменяет их целиком,
+ * поэтому подсказки и выдача по штрихкодам все это время работают по прежним.
+ */
+@Slf4j
+@Service
+public class LookupService {
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final int WARM_UP_BATCH_SIZE = 1000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ReaderRepository readerRepository;
+
+    @Autowired
+    private LibrarianRepository librarianRepository;
+
+    private volatile Indexes indexes = new Indexes();
+
+    /**
+     * Не дает двум перезагрузкам идти одновременно.
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * События, зафиксированные во время перезагрузки: ее порции могли прочитать
+     * строки до изменения, поэтому события повторяются на новых индексах перед подменой.
+     */
+    private List<EntityChangedEvent> pendingChanges;
+
+    /**
+     * Индексы подсказок и номеров, подменяемые вместе.
+     */
+    private record Indexes(PrefixIndex availableBooks, PrefixIndex readers, PrefixIndex librarians,
+                           NaturalKeyIndex bookIdsByNumber, NaturalKeyIndex readerIdsByTicket) {
+
+        Indexes() {
+            this(new PrefixIndex(), new PrefixIndex(), new PrefixIndex(), new NaturalKeyIndex(), new NaturalKeyIndex());
+        }
+    }
+
+    /**
+     * Ищет доступные для выдачи книги по началу названия, автора или номера.
+     * @param query префикс
+     * @param limit максимальное количество результатов
+     */
+    public List<LookupItem> lookupAvailableBooks(String query, int limit) {
+        return indexes.availableBooks().search(query, clampLimit(limit));
+    }
+
+    /**
+     * Ищет читателей по началу номера билета или ФИО.
+     * @param query префикс
+     * @param limit максимальное количество результатов
+     */
+    public List<LookupItem> lookupReaders(String query, int limit) {
+        return indexes.readers().search(query, clampLimit(limit));
+    }
+
+    /**
+     * Ищет библиотекарей по началу номера или ФИО.
+     * @param query префикс
+     * @param limit максимальное количество результатов
+     */
+    public List<LookupItem> lookupLibrarians(String query, int limit) {
+        return indexes.librarians().search(query, clampLimit(limit));
+    }
+
+    /**
+     * ID книги по ее номеру (штрихкоду) из памяти.
+     * Индекс обновляется после фиксации изменений, поэтому вызывающий
+     * должен сверить номер загруженной книги.
+     * @param bookNumber номер книги
+     * @return ID или null, если номера нет в индексе
+     */
+    public Long findBookId(String bookNumber) {
+        return indexes.bookIdsByNumber().get(bookNumber);
+    }
+
+    /**
+     * ID читателя по номеру читательского билета из памяти; номер загруженного
+     * читателя нужно сверить, как в findBookId.
+     * @param ticketNumber номер билета
+     * @return ID или null, если номера нет в индексе
+     */
+    public Long findReaderId(String ticketNumber) {
+        return indexes.readerIdsByTicket().get(ticketNumber);
+    }
+
+    /**
+     * Заполняет индексы при старте приложения и после импорта. Таблицы читаются
+     * порциями по ключу (id > последний ID), новые индексы подменяют прежние целиком.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+            Indexes rebuilt = new Indexes();
+            try {
+                List<Book> books;
+                long lastId = 0;
+                do {
+                    books = bookRepository.findBatchAfter(lastId, Limit.of(WARM_UP_BATCH_SIZE));
+                    for (Book book : books) {
+                        indexBook(rebuilt, book);
+                        lastId = book.getId();
+                    }
+                } while (books.size() == WARM_UP_BATCH_SIZE);
+
+                List<Reader> readerBatch;
+                lastId = 0;
+                do {
+                    readerBatch = readerRepository.findBatchAfter(lastId, Limit.of(WARM_UP_BATCH_SIZE));
+                    for (Reader reader : readerBatch) {
+                        indexReader(rebuilt, reader);
+                        lastId = reader.getId();
+                    }
+                } while (readerBatch.size() == WARM_UP_BATCH_SIZE);
+
+                librarianRepository.findAll().forEach(librarian -> indexLibrarian(rebuilt, librarian));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pendingChanges = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                pendingChanges.forEach(event -> apply(rebuilt, event));
+                pendingChanges = null;
+                indexes = rebuilt;
+            }
+            log.info("Индексы подсказок заполнены за {} мс (книг в наличии: {}, читателей: {}, библиотекарей: {})",
+                    System.currentTimeMillis() - start, rebuilt.availableBooks().size(),
+                    rebuilt.readers().size(), rebuilt.librarians().size());
+        }
+    }
+
+    /**
+     * Обновляет индексы после фиксации изменения сущности.
+     * @param event событие изменения
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEntityChanged(EntityChangedEvent event) {
+        apply(indexes, event);
+        if (pendingChanges != null) {
+            pendingChanges.add(event);
+        }
+    }
+
+    private static void apply(Indexes indexes, EntityChangedEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Book book) {
+            if (event.isDeleted()) {
+                indexes.availableBooks().remove(book.getId());
+                indexes.bookIdsByNumber().remove(book.getId());
+            } else {
+                indexBook(indexes, book);
+            }
+        } else if (entity instanceof Reader reader) {
+            if (event.isDeleted()) {
+                indexes.readers().remove(reader.getId());
+                indexes.readerIdsByTicket().remove(reader.getId());
+            } else {
+                indexReader(indexes, reader);
+            }
+        } else if (entity instanceof Librarian librarian) {
+            if (event.isDeleted()) {
+                indexes.librarians().remove(librarian.getId());
+            } else {
+                indexLibrarian(indexes, librarian);
+            }
+        }
+    }
+
+    private static void indexBook(Indexes indexes, Book book) {
+        indexes.bookIdsByNumber().put(book.getId(), book.getBookNumber());
+        if (book.isAvailable()) {
+            indexes.availableBooks().put(new LookupItem(book.getId(),
+                            book.getTitle() + " (" + book.getAuthor() + "), № " + book.getBookNumber()),
+                    book.getTitle(), book.getAuthor(), book.getBookNumber());
+        } else {
+            indexes.availableBooks().remove(book.getId());
+        }
+    }
+
+    private static void indexReader(Indexes indexes, Reader reader) {
+        indexes.readerIdsByTicket().put(reader.getId(), reader.getTicketNumber());
+        indexes.readers().put(new LookupItem(reader.getId(),
+                        reader.getFullName() + ", билет " + reader.getTicketNumber()),
+                reader.getFullName(), reader.getTicketNumber());
+    }
+
+    private static void indexLibrarian(Indexes indexes, Librarian librarian) {
+        indexes.librarians().put(new LookupItem(librarian.getId(),
+                        librarian.getFullName() + " (" + librarian.getPosition() + "), № " + librarian.getLibrarianNumber()),
+                librarian.getFullName(), librarian.getLibrarianNumber());
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
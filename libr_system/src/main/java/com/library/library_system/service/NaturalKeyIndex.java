@@ -0,0 +1,48 @@
+package com.library.library_system.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Соответствие уникального номера (номер книги, номер читательского билета) и ID в памяти.
+ * Поиск - одно обращение к хэш-таблице без блокировки; при смене номера
+ * прежний номер удаляется.
+ */
+class NaturalKeyIndex {
+
+    private final Map<String, Long> idsByKey = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Добавляет или заменяет номер элемента.
+     */
+    synchronized void put(Long id, String key) {
+        remove(id);
+        if (key != null) {
+            idsByKey.put(key, id);
+            keysById.put(id, key);
+        }
+    }
+
+    /**
+     * Удаляет элемент по ID.
+     */
+    synchronized void remove(Long id) {
+        String key = keysById.remove(id);
+        if (key != null) {
+            idsByKey.remove(key, id);
+        }
+    }
+
+    /**
+     * ID по номеру или null, если номера нет в индексе.
+     */
+    Long get(String key) {
+        return key != null ? idsByKey.get(key) : null;
+    }
+
+    int size() {
+        return idsByKey.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.library.library_system.service;
+
+import com.library.library_system.entity.BookLoan;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Просроченные выдачи в памяти, упорядоченные по сроку возврата и ID.
+ * Полностью перестраивается ежедневной проверкой OverdueLoanSweeper,
+ * между проверками обновляется после фиксации выдачи, возврата и удаления.
+ */
+@Component
+public class OverdueLoanIndex {
+
+    /**
+     * Просроченная выдача: ключ сортировки индекса.
+     */
+    public record Entry(LocalDate dueDate, long loanId) implements Comparable<Entry> {
+
+        @Override
+        public int compareTo(Entry other) {
+            int byDate = dueDate.compareTo(other.dueDate);
+            return byDate != 0 ? byDate : Long.compare(loanId, other.loanId);
+        }
+    }
+
+    /**
+     * Изменение выдачи: dueDate равен null, если выдача больше не просрочена.
+     */
+    private record Change(Long loanId, LocalDate dueDate) {
+    }
+
+    private final NavigableSet<Entry> entries = new TreeSet<>();
+
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+
+    private boolean ready;
+
+    /**
+     * Изменения, зафиксированные во время перестроения: перестроение читает
+     * снимок базы, поэтому после замены содержимого они применяются повторно.
+     */
+    private List<Change> pendingChanges;
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Страница просроченных выдач после указанного ключа.
+     * @param afterDueDate срок возврата последней выдачи предыдущей страницы (null - первая страница)
+     * @param afterId ID последней выдачи предыдущей страницы
+     * @param limit максимальное количество выдач
+     */
+    public synchronized List<Entry> page(LocalDate afterDueDate, Long afterId, int limit) {
+        NavigableSet<Entry> tail = afterDueDate == null || afterId == null
+                ? entries
+                : entries.tailSet(new Entry(afterDueDate, afterId), false);
+        List<Entry> result = new ArrayList<>(Math.min(limit, tail.size()));
+        for (Entry entry : tail) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Обновляет выдачу в индексе после фиксации текущей транзакции.
+     * @param loan сохраненная выдача
+     */
+    public void updateAfterCommit(BookLoan loan) {
+        Long id = loan.getId();
+        LocalDate dueDate = loan.getDueDate();
+        boolean overdue = isOverdue(loan, LocalDate.now());
+        AfterCommit.run(() -> apply(id, overdue ? dueDate : null));
+    }
+
+    /**
+     * Удаляет выдачу из индекса после фиксации текущей транзакции.
+     * @param loanId ID выдачи
+     */
+    public void removeAfterCommit(Long loanId) {
+        AfterCommit.run(() -> apply(loanId, null));
+    }
+
+    /**
+     * Начинает перестроение: изменения до его завершения будут применены повторно.
+     */
+    synchronized void beginRebuild() {
+        pendingChanges = new ArrayList<>();
+    }
+
+    /**
+     * Заменяет содержимое индекса результатом проверки.
+     * @param rebuilt просроченные выдачи на момент проверки
+     */
+    synchronized void finishRebuild(List<Entry> rebuilt) {
+        List<Change> changes = pendingChanges;
+        pendingChanges = null;
+
+        entries.clear();
+        entriesById.clear();
+        for (Entry entry : rebuilt) {
+            entries.add(entry);
+            entriesById.put(entry.loanId(), entry);
+        }
+        if (changes != null) {
+            for (Change change : changes) {
+                put(change.loanId(), change.dueDate());
+            }
+        }
+        ready = true;
+    }
+
+    /**
+     * Отменяет перестроение после ошибки, оставляя прежнее содержимое.
+     */
+    synchronized void abortRebuild() {
+        pendingChanges = null;
+    }
+
+    static boolean isOverdue(BookLoan loan, LocalDate today) {
+        return loan.getReturnDate() == null && loan.getDueDate() != null && loan.getDueDate().isBefore(today);
+    }
+
+    private synchronized void apply(Long loanId, LocalDate dueDate) {
+        put(loanId, dueDate);
+        if (pendingChanges != null) {
+            pendingChanges.add(new Change(loanId, dueDate));
+        }
+    }
+
+    /**
+     * @param dueDate срок возврата просроченной выдачи или null, если выдача не просрочена
+     */
+    private void put(Long loanId, LocalDate dueDate) {
+        Entry previous = entriesById.remove(loanId);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+        if (dueDate != null) {
+            Entry entry = new Entry(dueDate, loanId);
+            entries.add(entry);
+            entriesById.put(loanId, entry);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.library.library_system.service;
+
+import com.library.library_system.entity.BookLoan;
+import com.library.library_system.repository.BookLoanRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ежедневная проверка просроченных выдач.
+ * Проходит по невозвращенным выдачам с истекшим сроком курсором (индекс
+ * idx_book_loans_open_due_date по due_date WHERE return_date IS NULL),
+ * порциями отмечает их как просроченные и перестраивает OverdueLoanIndex.
+ * Выполняется при старте приложения и после смены даты.
+ */
+@Slf4j
+@Component
+@Transactional
+public class OverdueLoanSweeper {
+
+    static final int BATCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    @Autowired
+    private OverdueLoanIndex overdueLoanIndex;
+
+    @Autowired
+    private LoanCounterCache loanCounterCache;
+
+    @Autowired
+    private DataVersion dataVersion;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOnStartup() {
+        sweep();
+    }
+
+    @Scheduled(cron = "${library.overdue.sweep-cron:5 0 0 * * *}")
+    public void sweepOnSchedule() {
+        sweep();
+    }
+
+    /**
+     * Отмечает просроченные выдачи и перестраивает индекс.
+     */
+    public void sweep() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        overdueLoanIndex.beginRebuild();
+        try {
+            int cleared = bookLoanRepository.clearOverdueNotDue(today);
+
+            List<OverdueLoanIndex.Entry> overdue = new ArrayList<>();
+            List<Long> toMark = new ArrayList<>(BATCH_SIZE);
+            int marked = 0;
+            Session session = entityManager.unwrap(Session.class);
+            try (ScrollableResults<Object[]> rows = session.createSelectionQuery(
+                            "SELECT bl.id, bl.dueDate, bl.overdue FROM BookLoan bl " +
+                                    "WHERE bl.returnDate IS NULL AND bl.dueDate < :today", Object[].class)
+                    .setParameter("today", today)
+                    .setFetchSize(BATCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    Long loanId = (Long) row[0];
+                    overdue.add(new OverdueLoanIndex.Entry((LocalDate) row[1], loanId));
+                    if (!(Boolean) row[2]) {
+                        toMark.add(loanId);
+                        if (toMark.size() >= BATCH_SIZE) {
+                            marked += bookLoanRepository.markOverdue(toMark);
+                            toMark.clear();
+                        }
+                    }
+                }
+            }
+            if (!toMark.isEmpty()) {
+                marked += bookLoanRepository.markOverdue(toMark);
+            }
+
+            overdueLoanIndex.finishRebuild(overdue);
+            loanCounterCache.invalidate();
+            AfterCommit.run(() -> dataVersion.bump(BookLoan.class));
+            log.info("Проверка просроченных выдач за {} мс: просрочено {}, отмечено новых {}, снято отметок {}",
+                    System.currentTimeMillis() - start, overdue.size(), marked, cleared);
+        } catch (RuntimeException e) {
+            overdueLoanIndex.abortRebuild();
+            log.error("Ошибка проверки просроченных выдач", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.library.library_system.service;
+
+import com.library.library_system.dto.LookupItem;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Индекс для поиска по префиксу в памяти.
+ * Ключи хранятся в отсортированной карте, поэтому поиск - это один
+ * проход по диапазону [префикс, префикс + Character.MAX_VALUE) без обращения к базе.
+ * Каждый текст индексируется с начала каждого слова.
+ */
+class PrefixIndex {
+
+    private static final char ID_SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, LookupItem> entries = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, List<String>> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Добавляет или заменяет элемент.
+     * @param item элемент подсказки
+     * @param texts тексты, по началу слов которых ищется элемент
+     */
+    synchronized void put(LookupItem item, String... texts) {
+        remove(item.getId());
+
+        List<String> keys = new ArrayList<>();
+        for (String text : texts) {
+            String normalized = normalize(text);
+            for (int i = 0; i < normalized.length(); i++) {
+                if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                    String key = normalized.substring(i) + ID_SEPARATOR + item.getId();
+                    entries.put(key, item);
+                    keys.add(key);
+                }
+            }
+        }
+        keysById.put(item.getId(), keys);
+    }
+
+    /**
+     * Удаляет элемент по ID.
+     */
+    synchronized void remove(Long id) {
+        List<String> keys = keysById.remove(id);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+        }
+    }
+
+    /**
+     * Ищет элементы, у которых одно из слов начинается с префикса.
+     * @param prefix префикс
+     * @param limit максимальное количество результатов
+     */
+    List<LookupItem> search(String prefix, int limit) {
+        String from = normalize(prefix);
+        if (from.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, LookupItem> result = new LinkedHashMap<>();
+        for (LookupItem item : entries.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            result.putIfAbsent(item.getId(), item);
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    int size() {
+        return keysById.size();
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+}
@@ -1,17 +1,24 @@
 package com.library.library_system.service;
 
+import com.library.library_system.dto.ReaderListItem;
 import com.library.library_system.entity.Reader;
+import com.library.library_system.event.EntityChangedEvent;
 import com.library.library_system.repository.ReaderRepository;
-import com.library.library_system.repository.BookLoanRepository;
-import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 /**
  * Сервис для управления читателями.
  */
+@Slf4j
 @Service
 @Transactional
 public class ReaderService {
@@ -20,16 +27,17 @@ public class ReaderService {
     private ReaderRepository readerRepository;
 
     @Autowired
-    private BookLoanRepository bookLoanRepository;
+    private ApplicationEventPublisher eventPublisher;
 
     /**
-     * Получает всех читателей.
+     * Получает всех читателей для списка.
      */
-    public List<Reader> getAllReaders() {
+    @Transactional(readOnly = true)
+    public List<ReaderListItem> getAllReaders() {
         try {
-            return readerRepository.findAll();
+            return readerRepository.findAllListItems();
         } catch (Exception e) {
-            System.err.println("Ошибка при получении читателей: " + e.getMessage());
+            log.error("Ошибка при получении читателей: {}", e.getMessage());
             return List.of();
         }
     }
@@ -38,54 +46,80 @@ public class ReaderService {
      * Находит читателя по ID.
      * @param id ID читателя
      */
+    @Transactional(readOnly = true)
     public Reader getReaderById(Long id) {
         try {
             return readerRepository.findById(id).orElse(null);
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске читателя по ID: " + e.getMessage());
+            log.error("Ошибка при поиске читателя по ID: {}", e.getMessage());
             return null;
         }
     }
 
     /**
      * Сохраняет читателя.
+     * Уникальность билета и телефона обеспечивают ограничения в базе данных:
+     * дубликат отклоняется самой вставкой, без предварительных запросов.
      * @param reader объект читателя
      */
     public Reader saveReader(Reader reader) {
         try {
             if (reader.getId() == null) {
-                if (existsByTicketNumber(reader.getTicketNumber())) {
-                    throw new RuntimeException("Читатель с номером билета '" + reader.getTicketNumber() + "' уже существует");
-                }
-            } else {
-                Reader existingByTicket = readerRepository.findByTicketNumber(reader.getTicketNumber());
-                if (existingByTicket != null && !existingByTicket.getId().equals(reader.getId())) {
-                    throw new RuntimeException("Номер читательского билета '" + reader.getTicketNumber() + "' уже используется другим читателем");
-                }
+                reader.setActiveLoanCount(0);
+                Reader savedReader = readerRepository.saveAndFlush(reader);
+                eventPublisher.publishEvent(new EntityChangedEvent(savedReader, false));
+                return savedReader;
             }
 
-            if (reader.getId() == null) {
-                if (existsByPhoneNumber(reader.getPhoneNumber())) {
-                    throw new RuntimeException("Читатель с номером телефона '" + reader.getPhoneNumber() + "' уже существует");
-                }
-            } else {
-                List<Reader> allReaders = getAllReaders();
-                for (Reader r : allReaders) {
-                    if (r.getPhoneNumber() != null &&
-                            r.getPhoneNumber().equals(reader.getPhoneNumber()) &&
-                            !r.getId().equals(reader.getId())) {
-                        throw new RuntimeException("Номер телефона '" + reader.getPhoneNumber() + "' уже используется другим читателем");
-                    }
-                }
-            }
-
-            return readerRepository.save(reader);
+            Reader target = readerRepository.findById(reader.getId())
+                    .orElseThrow(() -> new RuntimeException("Читатель с ID " + reader.getId() + " не найден"));
+            target.setTicketNumber(reader.getTicketNumber());
+            target.setFullName(reader.getFullName());
+            target.setPhoneNumber(reader.getPhoneNumber());
+            target.setRegistrationDate(reader.getRegistrationDate());
+            Reader savedReader = readerRepository.saveAndFlush(target);
+            eventPublisher.publishEvent(new EntityChangedEvent(savedReader, false));
+            return savedReader;
+        } catch (DataIntegrityViolationException e) {
+            throw toDuplicateValueException(reader, e);
         } catch (Exception e) {
-            System.err.println("Ошибка при сохранении читателя: " + e.getMessage());
+            log.error("Ошибка при сохранении читателя: {}", e.getMessage());
             throw new RuntimeException("Не удалось сохранить читателя: " + e.getMessage());
         }
     }
 
+    /**
+     * Определяет по имени нарушенного ограничения, какое поле дублируется.
+     * @param reader сохраняемый читатель
+     * @param e исключение базы данных
+     */
+    private DuplicateValueException toDuplicateValueException(Reader reader, DataIntegrityViolationException e) {
+        String constraint = null;
+        if (e.getCause() instanceof ConstraintViolationException violation) {
+            constraint = violation.getConstraintName();
+        }
+
+        boolean phoneDuplicate;
+        if (Reader.PHONE_NUMBER_CONSTRAINT.equalsIgnoreCase(constraint)) {
+            phoneDuplicate = true;
+        } else if (Reader.TICKET_NUMBER_CONSTRAINT.equalsIgnoreCase(constraint)) {
+            phoneDuplicate = false;
+        } else {
+            // Ограничение с другим именем (например, созданное ранее Hibernate):
+            // транзакция уже прервана, поэтому смотрим на текст ошибки, а не делаем запрос
+            String detail = e.getMostSpecificCause().getMessage();
+            phoneDuplicate = detail != null && detail.contains("phone_number");
+        }
+
+        log.info("Нарушение уникальности читателя: {}", constraint);
+        if (phoneDuplicate) {
+            return new DuplicateValueException("phoneNumber",
+                    "Номер телефона '" + reader.getPhoneNumber() + "' уже используется другим читателем");
+        }
+        return new DuplicateValueException("ticketNumber",
+                "Номер читательского билета '" + reader.getTicketNumber() + "' уже используется другим читателем");
+    }
+
     /**
      * Удаляет читателя.
      * @param id ID читателя для удаления
@@ -96,46 +130,47 @@ public class ReaderService {
             Reader reader = readerRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Читатель с ID " + id + " не найден"));
 
-            boolean hasActiveLoans = bookLoanRepository.existsActiveLoanByReaderId(id);
-
-            if (hasActiveLoans) {
+            if (reader.getActiveLoanCount() > 0) {
                 throw new RuntimeException("Нельзя удалить читателя: у него есть активные выдачи книг");
             }
 
             readerRepository.delete(reader);
-            System.out.println("Читатель с ID " + id + " удален");
+            eventPublisher.publishEvent(new EntityChangedEvent(reader, true));
+            log.info("Читатель с ID {} удален", id);
 
         } catch (Exception e) {
-            System.err.println("Ошибка при удалении читателя: " + e.getMessage());
+            log.error("Ошибка при удалении читателя: {}", e.getMessage());
             throw new RuntimeException("Не удалось удалить читателя: " + e.getMessage());
         }
     }
 
     /**
-     * Ищет читателей по ключевому слову.
+     * Ищет читателей по ФИО, номеру билета или телефону без учета регистра.
+     * Совпадения отбираются по индексам и сортируются по релевантности в базе (SearchQuery).
      * @param keyword ключевое слово для поиска
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
      */
-    public List<Reader> searchReaders(String keyword) {
+    @Transactional(readOnly = true)
+    public Page<ReaderListItem> searchReaders(String keyword, int page, int size) {
+        Pageable pageable = SearchQuery.pageable(page, size);
+
         try {
             if (keyword == null || keyword.trim().isEmpty()) {
-                return getAllReaders();
+                return Page.empty(pageable);
             }
 
-            String searchTerm = keyword.trim().toLowerCase();
-            List<Reader> allReaders = getAllReaders();
-            List<Reader> result = new ArrayList<>();
-
-            for (Reader reader : allReaders) {
-                if (reader.getFullName() != null && reader.getFullName().toLowerCase().contains(searchTerm)) {
-                    result.add(reader);
-                }
-            }
+            String query = keyword.trim();
+            Page<ReaderListItem> result = SearchQuery.isSubstring(query)
+                    ? readerRepository.searchContaining(query, SearchQuery.containing(query), pageable)
+                    : readerRepository.searchStartingWith(query, SearchQuery.startingWith(query), pageable);
 
+            log.debug("Поиск '{}': найдено {} читателей", query, result.getTotalElements());
             return result;
 
         } catch (Exception e) {
-            System.err.println("Ошибка при поиске читателей: " + e.getMessage());
-            return getAllReaders();
+            log.error("Ошибка при поиске читателей: {}", e.getMessage());
+            return Page.empty(pageable);
         }
     }
 
@@ -151,17 +186,14 @@ public class ReaderService {
      * Проверяет существование читателя по номеру билета.
      */
     public boolean existsByTicketNumber(String ticketNumber) {
-        return readerRepository.findByTicketNumber(ticketNumber) != null;
+        return readerRepository.existsByTicketNumber(ticketNumber);
     }
 
     /**
      * Проверяет существование читателя по номеру телефона.
      */
     public boolean existsByPhoneNumber(String phoneNumber) {
-        List<Reader> allReaders = getAllReaders();
-        return allReaders.stream()
-                .anyMatch(reader -> reader.getPhoneNumber() != null &&
-                        reader.getPhoneNumber().equals(phoneNumber));
+        return readerRepository.existsByPhoneNumber(phoneNumber);
     }
 
     /**
@@ -170,10 +202,6 @@ public class ReaderService {
      * @param phoneNumber номер телефона для проверки
      */
     public boolean isPhoneNumberUsedByOtherReader(Long readerId, String phoneNumber) {
-        List<Reader> allReaders = getAllReaders();
-        return allReaders.stream()
-                .anyMatch(reader -> reader.getPhoneNumber() != null &&
-                        reader.getPhoneNumber().equals(phoneNumber) &&
-                        !reader.getId().equals(readerId));
+        return readerRepository.existsByPhoneNumberAndIdNot(phoneNumber, readerId);
     }
 }
\ No newline at end of file
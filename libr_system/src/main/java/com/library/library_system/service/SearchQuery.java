@@ -0,0 +1,59 @@
+package com.library.library_system.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Поисковый запрос без учета регистра для индексированного поиска в справочниках.
+ * Запрос от MIN_SUBSTRING_LENGTH символов ищется как подстрока (ILIKE по trigram
+ * GIN индексам). В более коротком нет ни одной тройки символов, поэтому он ищется
+ * как префикс (LIKE по индексам lower(...) text_pattern_ops).
+ */
+public final class SearchQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private SearchQuery() {
+    }
+
+    /**
+     * Страница результатов: номер не меньше 0, размер от 1 до MAX_PAGE_SIZE.
+     */
+    static Pageable pageable(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * Искать ли запрос как подстроку (иначе - как префикс).
+     */
+    static boolean isSubstring(String query) {
+        return query.length() >= MIN_SUBSTRING_LENGTH;
+    }
+
+    /**
+     * Шаблон LIKE для подстроки.
+     */
+    static String containing(String query) {
+        return "%" + escapeLike(query) + "%";
+    }
+
+    /**
+     * Шаблон LIKE для префикса.
+     */
+    static String startingWith(String query) {
+        return escapeLike(query) + "%";
+    }
+
+    /**
+     * Экранирует спецсимволы LIKE, чтобы они искались буквально.
+     */
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+-- Исходная схема: раньше ее создавал Hibernate по сущностям (ddl-auto=update),
+-- а индексы добавлял schema.sql. На существующей базе без истории Flyway
+-- (baseline-version=0) CREATE ... IF NOT EXISTS пропускаются, а колонки
+-- и ограничения, которых в ней нет, добавляются после создания таблиц.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE IF NOT EXISTS books (
+    book_id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_number      varchar(255) NOT NULL,
+    title            varchar(255) NOT NULL,
+    author           varchar(255) NOT NULL,
+    publication_year integer      NOT NULL,
+    current_loan_id  bigint,
+    version          bigint       NOT NULL DEFAULT 0,
+    CONSTRAINT uk_books_book_number UNIQUE (book_number)
+);
+
+CREATE TABLE IF NOT EXISTS readers (
+    reader_id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    ticket_number     varchar(255) NOT NULL,
+    full_name         varchar(255) NOT NULL,
+    phone_number      varchar(255) NOT NULL,
+    registration_date date,
+    active_loan_count integer      NOT NULL DEFAULT 0,
+    version           bigint       NOT NULL DEFAULT 0,
+    CONSTRAINT uk_readers_ticket_number UNIQUE (ticket_number),
+    CONSTRAINT uk_readers_phone_number UNIQUE (phone_number)
+);
+
+CREATE TABLE IF NOT EXISTS librarians (
+    librarian_id     bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    librarian_number varchar(255) NOT NULL,
+    full_name        varchar(255) NOT NULL,
+    position         varchar(255),
+    CONSTRAINT uk_librarians_librarian_number UNIQUE (librarian_number)
+);
+
+CREATE TABLE IF NOT EXISTS book_loans (
+    loan_id      bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_id      bigint  NOT NULL REFERENCES books (book_id),
+    reader_id    bigint  NOT NULL REFERENCES readers (reader_id),
+    librarian_id bigint  NOT NULL REFERENCES librarians (librarian_id),
+    loan_date    date    NOT NULL,
+    due_date     date    NOT NULL,
+    return_date  date,
+    overdue      boolean NOT NULL DEFAULT false
+);
+
+-- Колонки, которых нет в схеме, созданной Hibernate до перехода на Flyway
+ALTER TABLE books ADD COLUMN IF NOT EXISTS current_loan_id bigint;
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE readers ADD COLUMN IF NOT EXISTS active_loan_count integer NOT NULL DEFAULT 0;
+ALTER TABLE readers ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE book_loans ADD COLUMN IF NOT EXISTS overdue boolean NOT NULL DEFAULT false;
+
+-- Hibernate создавал проверку года из @Max с верхней границей 2025;
+-- верхняя граница проверяется в приложении, в базе остается только нижняя.
+ALTER TABLE books DROP CONSTRAINT IF EXISTS books_publication_year_check;
+ALTER TABLE books ADD CONSTRAINT books_publication_year_check CHECK (publication_year >= 1500);
+
+-- Уникальность номера билета и телефона под именами, по которым ReaderService
+-- распознает нарушение. Ограничение Hibernate на ту же колонку переименовывается;
+-- если ограничения нет, повторяющиеся значения останавливают миграцию с их описанием.
+DO $$
+DECLARE
+    c record;
+    existing text;
+    duplicate text;
+BEGIN
+    FOR c IN SELECT * FROM (VALUES ('uk_readers_ticket_number', 'ticket_number'),
+                                   ('uk_readers_phone_number', 'phone_number')) v (name, col) LOOP
+        CONTINUE WHEN EXISTS (SELECT 1 FROM pg_constraint WHERE conname = c.name);
+
+        SELECT con.conname INTO existing
+        FROM pg_constraint con
+        JOIN pg_attribute a ON a.attrelid = con.conrelid AND a.attnum = con.conkey[1]
+        WHERE con.conrelid = 'readers'::regclass AND con.contype = 'u'
+          AND cardinality(con.conkey) = 1 AND a.attname = c.col;
+
+        IF existing IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE readers RENAME CONSTRAINT %I TO %I', existing, c.name);
+        ELSE
+            EXECUTE format('SELECT %1$I FROM readers GROUP BY %1$I HAVING count(*) > 1 LIMIT 1', c.col)
+                INTO duplicate;
+            IF duplicate IS NOT NULL THEN
+                RAISE EXCEPTION 'readers.% содержит повторяющееся значение %: устраните дубликаты перед миграцией',
+                    c.col, duplicate;
+            END IF;
+            EXECUTE format('ALTER TABLE readers ADD CONSTRAINT %I UNIQUE (%I)', c.name, c.col);
+        END IF;
+    END LOOP;
+END $$;
+
+-- Индексы для поиска выдач (BookLoanRepository.SEARCH_HITS)
+CREATE INDEX IF NOT EXISTS idx_books_title_trgm ON books USING gin (title gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_books_author_trgm ON books USING gin (author gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_books_book_number_trgm ON books USING gin (book_number gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_readers_full_name_trgm ON readers USING gin (full_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_readers_ticket_number_trgm ON readers USING gin (ticket_number gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_readers_phone_number_trgm ON readers USING gin (phone_number gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_librarians_full_name_trgm ON librarians USING gin (full_name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_book_loans_book_id ON book_loans (book_id);
+CREATE INDEX IF NOT EXISTS idx_book_loans_reader_id ON book_loans (reader_id);
+CREATE INDEX IF NOT EXISTS idx_book_loans_librarian_id ON book_loans (librarian_id);
+
+-- Невозвращенные выдачи по сроку возврата: проверка просроченных (OverdueLoanSweeper)
+CREATE INDEX IF NOT EXISTS idx_book_loans_open_due_date ON book_loans (due_date) WHERE return_date IS NULL;
+
+-- Заполнение денормализованного состояния выдач (books.current_loan_id,
+-- readers.active_loan_count) для строк, созданных до появления этих колонок.
+UPDATE books b SET current_loan_id = a.loan_id
+FROM (SELECT book_id, MAX(loan_id) AS loan_id FROM book_loans WHERE return_date IS NULL GROUP BY book_id) a
+WHERE a.book_id = b.book_id AND b.current_loan_id IS NULL;
+
+UPDATE readers r SET active_loan_count = a.loan_count
+FROM (SELECT reader_id, COUNT(*) AS loan_count FROM book_loans WHERE return_date IS NULL GROUP BY reader_id) a
+WHERE a.reader_id = r.reader_id AND r.active_loan_count <> a.loan_count;
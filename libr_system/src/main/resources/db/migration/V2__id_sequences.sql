@@ -0,0 +1,25 @@
+-- ID сущностей из последовательностей вместо IDENTITY (IdGeneration).
+-- Шаг равен allocationSize: Hibernate (оптимизатор pooled-lo) берет значение N
+-- и сам выдает ID N..N+49, поэтому вставки идут JDBC-пакетами.
+-- Последовательности начинаются после максимального существующего ID;
+-- значение по умолчанию оставлено для вставок из SQL без явного ID.
+
+CREATE SEQUENCE IF NOT EXISTS books_seq INCREMENT BY 50;
+ALTER TABLE books ALTER COLUMN book_id DROP IDENTITY IF EXISTS;
+ALTER TABLE books ALTER COLUMN book_id SET DEFAULT nextval('books_seq');
+SELECT setval('books_seq', coalesce((SELECT max(book_id) FROM books), 0) + 1, false);
+
+CREATE SEQUENCE IF NOT EXISTS readers_seq INCREMENT BY 50;
+ALTER TABLE readers ALTER COLUMN reader_id DROP IDENTITY IF EXISTS;
+ALTER TABLE readers ALTER COLUMN reader_id SET DEFAULT nextval('readers_seq');
+SELECT setval('readers_seq', coalesce((SELECT max(reader_id) FROM readers), 0) + 1, false);
+
+CREATE SEQUENCE IF NOT EXISTS librarians_seq INCREMENT BY 50;
+ALTER TABLE librarians ALTER COLUMN librarian_id DROP IDENTITY IF EXISTS;
+ALTER TABLE librarians ALTER COLUMN librarian_id SET DEFAULT nextval('librarians_seq');
+SELECT setval('librarians_seq', coalesce((SELECT max(librarian_id) FROM librarians), 0) + 1, false);
+
+CREATE SEQUENCE IF NOT EXISTS book_loans_seq INCREMENT BY 50;
+ALTER TABLE book_loans ALTER COLUMN loan_id DROP IDENTITY IF EXISTS;
+ALTER TABLE book_loans ALTER COLUMN loan_id SET DEFAULT nextval('book_loans_seq');
+SELECT setval('book_loans_seq', coalesce((SELECT max(loan_id) FROM book_loans), 0) + 1, false);
@@ -0,0 +1,23 @@
+-- Индексы под запросы BookLoanRepository и BookRepository.
+
+-- Активные выдачи читателя (existsActiveLoanByReaderId, счетчики выдач).
+-- Заменяет индекс только по reader_id: его запросы обслуживает префикс составного.
+CREATE INDEX IF NOT EXISTS idx_book_loans_reader_return ON book_loans (reader_id, return_date);
+DROP INDEX IF EXISTS idx_book_loans_reader_id;
+
+-- Активная выдача книги (existsActiveLoanByBookId): у книги не больше одной
+-- невозвращенной выдачи, индекс содержит только их.
+CREATE INDEX IF NOT EXISTS idx_book_loans_open_book_id ON book_loans (book_id) WHERE return_date IS NULL;
+
+-- Невозвращенные по сроку (findOverdueLoans, OverdueLoanSweeper) -
+-- idx_book_loans_open_due_date уже создан в V1.
+
+-- Постраничные списки выдач: ключ (loan_date, loan_id) в порядке сортировки
+CREATE INDEX IF NOT EXISTS idx_book_loans_loan_date_id ON book_loans (loan_date DESC, loan_id DESC);
+
+-- Поиск книг без учета регистра: равенство и префикс LIKE по lower(...)
+CREATE INDEX IF NOT EXISTS idx_books_lower_title ON books (lower(title) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_books_lower_author ON books (lower(author) text_pattern_ops);
+
+-- Доступные книги по названию (findAvailable)
+CREATE INDEX IF NOT EXISTS idx_books_available_title ON books (title, book_id) WHERE current_loan_id IS NULL;
@@ -0,0 +1,7 @@
+-- Поиск по короткому запросу (меньше трех символов) ищет префикс:
+-- в таком запросе нет ни одной тройки символов для trigram индексов.
+-- Индексы lower(title), lower(author) созданы в V3.
+CREATE INDEX IF NOT EXISTS idx_books_lower_book_number ON books (lower(book_number) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_readers_lower_full_name ON readers (lower(full_name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_readers_lower_ticket_number ON readers (lower(ticket_number) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_librarians_lower_full_name ON librarians (lower(full_name) text_pattern_ops);
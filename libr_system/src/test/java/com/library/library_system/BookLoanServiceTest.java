@@ -0,0 +1,130 @@
+package com.library.library_system;
+
+import com.library.library_system.dto.LoanListItem;
+import com.library.library_system.dto.LoanPage;
+import com.library.library_system.entity.Book;
+import com.library.library_system.entity.BookLoan;
+import com.library.library_system.entity.Librarian;
+import com.library.library_system.entity.Reader;
+import com.library.library_system.repository.BookLoanRepository;
+import com.library.library_system.service.BookLoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Изменение существующей выдачи через BookLoanService.saveLoan: отметки книг,
+ * счетчики читателей и счетчики вкладок следуют за книгой, читателем и датой возврата.
+ * Листание просроченных выдач: курсор из OverdueLoanIndex понятен запросу к базе.
+ */
+class BookLoanServiceTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private BookLoanService bookLoanService;
+
+    @Autowired
+    private BookLoanRepository bookLoanRepository;
+
+    /**
+     * Активная выдача переносится на другую книгу и другого читателя, затем возвращается изменением.
+     */
+    @Test
+    void editLoan() {
+        jdbcTemplate.update("INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+                "VALUES (104, 'B104', 'Книга 104', 'Автор 104', 2000, 0)");
+        Long loanId = jdbcTemplate.queryForObject("SELECT min(loan_id) FROM book_loans " +
+                "WHERE return_date IS NULL AND due_date >= current_date", Long.class);
+        Long readerId = jdbcTemplate.queryForObject("SELECT min(reader_id) FROM readers WHERE reader_id <> " +
+                "(SELECT reader_id FROM book_loans WHERE loan_id = ?)", Long.class, loanId);
+
+        BookLoan moved = loan(loanId, 104L, readerId, null);
+        bookLoanService.saveLoan(moved);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT current_loan_id FROM books WHERE book_id = 104", Long.class))
+                .isEqualTo(loanId);
+        assertLoanStateConsistent();
+        assertLoanCountsMatchDatabase();
+
+        bookLoanService.saveLoan(loan(loanId, 104L, readerId, LocalDate.now()));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT current_loan_id FROM books WHERE book_id = 104", Long.class))
+                .isNull();
+        assertLoanStateConsistent();
+        assertLoanCountsMatchDatabase();
+    }
+
+    /**
+     * Перенос активной выдачи на уже выданную книгу отклоняется без изменений.
+     */
+    @Test
+    void editLoanToLoanedBook() {
+        Long loanId = jdbcTemplate.queryForObject("SELECT min(loan_id) FROM book_loans WHERE return_date IS NULL", Long.class);
+        Long loanedBookId = jdbcTemplate.queryForObject("SELECT min(book_id) FROM books " +
+                "WHERE current_loan_id IS NOT NULL AND current_loan_id <> ?", Long.class, loanId);
+        Long readerId = jdbcTemplate.queryForObject("SELECT reader_id FROM book_loans WHERE loan_id = ?", Long.class, loanId);
+
+        assertThatThrownBy(() -> bookLoanService.saveLoan(loan(loanId, loanedBookId, readerId, null)))
+                .hasMessageContaining("уже выдана");
+
+        assertLoanStateConsistent();
+    }
+
+    /**
+     * Курсор страницы из индекса, переданный запросу к базе (как до построения индекса),
+     * дает ту же следующую страницу, и обход по срокам возврата совпадает с базой.
+     */
+    @Test
+    void overduePagesUseSameCursorInIndexAndDatabase() {
+        List<Long> expected = jdbcTemplate.queryForList("SELECT loan_id FROM book_loans " +
+                "WHERE return_date IS NULL AND due_date < current_date ORDER BY due_date, loan_id", Long.class);
+        assertThat(expected).hasSizeGreaterThan(2);
+
+        List<Long> fromIndex = new ArrayList<>();
+        LoanPage page = bookLoanService.getLoansPage("overdue", null, null, 2);
+        while (true) {
+            page.getContent().forEach(item -> fromIndex.add(item.getId()));
+            if (!page.isHasNext()) {
+                break;
+            }
+            List<Long> fromDatabase = bookLoanRepository.findOverduePageAfter(LocalDate.now(),
+                    page.getNextLoanDate(), page.getNextLoanId(), Limit.of(2)).stream()
+                    .map(LoanListItem::getId)
+                    .toList();
+            page = bookLoanService.getLoansPage("overdue", page.getNextLoanDate(), page.getNextLoanId(), 2);
+            assertThat(fromDatabase).isEqualTo(page.getContent().stream().map(LoanListItem::getId).toList());
+        }
+        assertThat(fromIndex).isEqualTo(expected);
+    }
+
+    private static BookLoan loan(Long id, Long bookId, Long readerId, LocalDate returnDate) {
+        Book book = new Book();
+        book.setId(bookId);
+        Reader reader = new Reader();
+        reader.setId(readerId);
+        Librarian librarian = new Librarian();
+        librarian.setId(1L);
+
+        BookLoan loan = new BookLoan();
+        loan.setId(id);
+        loan.setBook(book);
+        loan.setReader(reader);
+        loan.setLibrarian(librarian);
+        loan.setLoanDate(LocalDate.now().minusDays(1));
+        loan.setDueDate(LocalDate.now().plusDays(14));
+        loan.setReturnDate(returnDate);
+        return loan;
+    }
+
+    private void assertLoanCountsMatchDatabase() {
+        assertThat(bookLoanService.getLoanCounts().getActive()).isEqualTo(
+                jdbcTemplate.queryForObject("SELECT count(*) FROM book_loans WHERE return_date IS NULL", Long.class));
+        assertThat(bookLoanService.getLoanCounts().getReturned()).isEqualTo(
+                jdbcTemplate.queryForObject("SELECT count(*) FROM book_loans WHERE return_date IS NOT NULL", Long.class));
+    }
+}
@@ -0,0 +1,142 @@
+package com.library.library_system;
+
+import com.library.library_system.service.LoanCounterCache;
+import com.library.library_system.service.LookupService;
+import com.library.library_system.service.OverdueLoanSweeper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Общая основа тестов приложения на встроенном PostgreSQL.
+ * База запускается один раз на весь прогон и заполняется один раз, поэтому все
+ * наследники работают в одном контексте Spring. Тесты меняют общие данные, так что
+ * нужные строки выбираются запросом к базе, а новые книги создаются со своими ID.
+ * Кэш второго уровня очищается перед каждым тестом.
+ */
+@SpringBootTest(classes = LibrarySystemApplication.class)
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+abstract class EmbeddedPostgresTest {
+
+    static final int LOANS = 30;
+
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    private static boolean seeded;
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected LookupService lookupService;
+
+    @Autowired
+    protected EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OverdueLoanSweeper overdueLoanSweeper;
+
+    @Autowired
+    private LoanCounterCache loanCounterCache;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    /**
+     * 10 книг, 10 читателей, 3 библиотекаря и 30 выдач: 10 активных (из них 5 просрочены),
+     * остальные возвращены. ID задаются явно, последовательности продолжаются после них.
+     * Кэши приложения перестраиваются после заполнения.
+     */
+    @BeforeAll
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO librarians (librarian_id, librarian_number, full_name, position) " +
+                "SELECT g, 'L' || g, 'Библиотекарь ' || g, 'Библиотекарь' FROM generate_series(1, 3) g");
+        jdbcTemplate.update("INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+                "SELECT g, 'B' || g, 'Книга ' || g, 'Автор ' || g, 2000 + g, 0 FROM generate_series(1, 10) g");
+        jdbcTemplate.update("INSERT INTO readers (reader_id, ticket_number, full_name, phone_number, registration_date, " +
+                "active_loan_count, version) " +
+                "SELECT g, 'T' || g, 'Читатель ' || g, '+7(900)000-00-' || lpad(g::text, 2, '0'), current_date, 0, 0 " +
+                "FROM generate_series(1, 10) g");
+        jdbcTemplate.update("INSERT INTO book_loans (loan_id, book_id, reader_id, librarian_id, loan_date, due_date, return_date) " +
+                "SELECT g, 1 + g % 10, 1 + (g * 3) % 10, 1 + g % 3, current_date - (? - g), " +
+                "       CASE WHEN g > ? THEN current_date + (g % 2) * 20 - 10 ELSE current_date - (? - g) + 14 END, " +
+                "       CASE WHEN g > ? THEN NULL ELSE current_date - (? - g) + 7 END " +
+                "FROM generate_series(1, ?) g",
+                LOANS, LOANS - 10, LOANS, LOANS - 10, LOANS, LOANS);
+        jdbcTemplate.update("UPDATE books b SET current_loan_id = bl.loan_id " +
+                "FROM book_loans bl WHERE bl.book_id = b.book_id AND bl.return_date IS NULL");
+        jdbcTemplate.update("UPDATE readers r SET active_loan_count = c.cnt " +
+                "FROM (SELECT reader_id, count(*) AS cnt FROM book_loans WHERE return_date IS NULL GROUP BY reader_id) c " +
+                "WHERE c.reader_id = r.reader_id");
+        jdbcTemplate.queryForList("SELECT setval('books_seq', (SELECT max(book_id) + 1 FROM books), false), " +
+                "setval('readers_seq', (SELECT max(reader_id) + 1 FROM readers), false), " +
+                "setval('librarians_seq', (SELECT max(librarian_id) + 1 FROM librarians), false), " +
+                "setval('book_loans_seq', (SELECT max(loan_id) + 1 FROM book_loans), false)");
+
+        overdueLoanSweeper.sweep();
+        lookupService.warmUp();
+        loanCounterCache.invalidate();
+        loanCounterCache.get();
+        seeded = true;
+    }
+
+    @BeforeEach
+    void evictSecondLevelCache() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * Отметки книг (current_loan_id) и счетчики читателей (active_loan_count)
+     * совпадают с невозвращенными выдачами.
+     */
+    protected void assertLoanStateConsistent() {
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM books b WHERE current_loan_id IS DISTINCT FROM " +
+                "(SELECT max(loan_id) FROM book_loans bl WHERE bl.book_id = b.book_id AND bl.return_date IS NULL)",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM readers r WHERE active_loan_count <> " +
+                "(SELECT count(*) FROM book_loans bl WHERE bl.reader_id = r.reader_id AND bl.return_date IS NULL)",
+                Integer.class)).isZero();
+    }
+
+    /**
+     * Запускает базу на весь прогон тестов; процесс PostgreSQL останавливается при завершении JVM.
+     */
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException e) {
+                    throw new RuntimeException("Не удалось остановить встроенный PostgreSQL", e);
+                }
+            }));
+            return postgres;
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось запустить встроенный PostgreSQL", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.library.library_system;
+
+import com.library.library_system.service.DatabaseConcurrencyLimiter;
+import com.library.library_system.service.ExportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Потоковые выгрузки не занимают разрешения DatabaseConcurrencyLimiter для страниц и выдач.
+ */
+class ExportConcurrencyTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${library.db.max-concurrency}")
+    private int maxConcurrency;
+
+    /**
+     * Две выгрузки, чей клиент не читает ответ, держат свои транзакции; все разрешения
+     * запросов свободны, и страницы открываются.
+     */
+    @Test
+    void pagesServedWhileExportsStream() throws Exception {
+        CountDownLatch writing = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Long>> exports = new ArrayList<>();
+        try {
+            exports.add(executor.submit(() -> exportService.exportBooks(new SlowClient(writing, release))));
+            exports.add(executor.submit(() -> exportService.exportLoans(new SlowClient(writing, release))));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(gauge(DatabaseConcurrencyLimiter.EXPORTS_AVAILABLE_GAUGE)).isZero();
+            assertThat(gauge(DatabaseConcurrencyLimiter.AVAILABLE_GAUGE)).isEqualTo(maxConcurrency);
+            mockMvc.perform(get("/books")).andExpect(status().isOk());
+            mockMvc.perform(get("/loans")).andExpect(status().isOk());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        for (Future<Long> export : exports) {
+            assertThat(export.get(10, TimeUnit.SECONDS)).isPositive();
+        }
+        assertThat(gauge(DatabaseConcurrencyLimiter.EXPORTS_AVAILABLE_GAUGE)).isEqualTo(2);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    /**
+     * Клиент, который не читает ответ, пока его не отпустят.
+     */
+    private static class SlowClient extends OutputStream {
+
+        private final CountDownLatch writing;
+
+        private final CountDownLatch release;
+
+        private boolean started;
+
+        SlowClient(CountDownLatch writing, CountDownLatch release) {
+            this.writing = writing;
+            this.release = release;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (started) {
+                return;
+            }
+            started = true;
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.library.library_system;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * JSON API /api/v1: страницы по ключу id, выбор полей и выборка по списку id.
+ */
+class JsonApiTest extends EmbeddedPostgresTest {
+
+    /**
+     * Страница по ключу: следующая начинается после nextAfter, на последней nextAfter = null.
+     */
+    @Test
+    void keysetPages() throws Exception {
+        mockMvc.perform(get("/api/v1/librarians?size=2&fields=librarianNumber"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id").value(contains(1, 2)))
+                .andExpect(jsonPath("$.nextAfter").value(2));
+        mockMvc.perform(get("/api/v1/librarians?size=2&after=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].librarianNumber").value(contains("L3")))
+                .andExpect(jsonPath("$.nextAfter").isEmpty());
+    }
+
+    /**
+     * API: выборка по списку id возвращает только запрошенные поля, ненайденные id - в missing.
+     */
+    @Test
+    void apiBulk() throws Exception {
+        mockMvc.perform(post("/api/v1/loans/bulk?fields=bookNumber,returnDate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3, 1, 2, 999999]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id").value(contains(1, 2, 3)))
+                .andExpect(jsonPath("$.items[0].ticketNumber").doesNotExist())
+                .andExpect(jsonPath("$.items[0].bookNumber").exists())
+                .andExpect(jsonPath("$.missing").value(contains(999999)));
+    }
+
+    /**
+     * Неизвестное поле - 400 с описанием, неизвестный ресурс - 404.
+     */
+    @Test
+    void invalidRequests() throws Exception {
+        mockMvc.perform(get("/api/v1/books?fields=title,secret"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(get("/api/v1/unknown")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,89 @@
+package com.library.library_system;
+
+import com.library.library_system.metrics.SqlStatementCounter;
+import com.library.library_system.service.BookLoanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Пакетные возврат и выдача (/loans/return-batch, /loans/checkout-batch):
+ * результат по каждой позиции, число запросов на пакет и согласованность отметок книг и счетчиков читателей.
+ */
+class LoanBatchTest extends EmbeddedPostgresTest {
+
+    /**
+     * Пакетный возврат: просроченные выдачи тоже возвращаются, по каждой позиции - свой результат,
+     * отметки книг и счетчики читателей совпадают с активными выдачами.
+     */
+    @Test
+    void returnBatch() throws Exception {
+        List<Long> overdue = jdbcTemplate.queryForList("SELECT loan_id FROM book_loans " +
+                "WHERE return_date IS NULL AND due_date < current_date ORDER BY loan_id LIMIT 2", Long.class);
+        Long returned = jdbcTemplate.queryForObject("SELECT min(loan_id) FROM book_loans WHERE return_date IS NOT NULL", Long.class);
+
+        mockMvc.perform(post("/loans/return-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + overdue.get(0) + ", " + overdue.get(1) + ", " + returned + ", 999999]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].status").value(contains("RETURNED", "RETURNED", "ALREADY_RETURNED", "LOAN_NOT_FOUND")))
+                .andExpect(jsonPath("$.succeeded").value(2));
+
+        assertThat(SqlStatementCounter.getCount()).isLessThanOrEqualTo(1);
+        assertLoanStateConsistent();
+    }
+
+    /**
+     * Пакетная выдача двух новых книг: уже выданная книга (в том числе предыдущей позицией) и неизвестный читатель
+     * отклоняются, остальные пары выдаются одной транзакцией с пакетной вставкой.
+     */
+    @Test
+    void checkoutBatch() throws Exception {
+        jdbcTemplate.update("INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+                "SELECT g, 'B' || g, 'Книга ' || g, 'Автор ' || g, 2000, 0 FROM generate_series(101, 102) g");
+        List<Long> available = List.of(101L, 102L);
+        Long loaned = jdbcTemplate.queryForObject("SELECT min(book_id) FROM books WHERE current_loan_id IS NOT NULL", Long.class);
+
+        mockMvc.perform(post("/loans/checkout-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"librarianId\": 1, \"items\": [" +
+                                "{\"bookId\": " + available.get(0) + ", \"readerId\": 1}, " +
+                                "{\"bookId\": " + available.get(1) + ", \"readerId\": 1}, " +
+                                "{\"bookId\": " + available.get(0) + ", \"readerId\": 2}, " +
+                                "{\"bookId\": " + loaned + ", \"readerId\": 2}, " +
+                                "{\"bookId\": " + available.get(1) + ", \"readerId\": 999999}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].status").value(contains(
+                        "CHECKED_OUT", "CHECKED_OUT", "BOOK_UNAVAILABLE", "BOOK_UNAVAILABLE", "READER_NOT_FOUND")))
+                .andExpect(jsonPath("$.items[0].loanId").isNumber());
+
+        assertThat(SqlStatementCounter.getCount()).as("SQL-запросов").isLessThanOrEqualTo(8);
+        assertLoanStateConsistent();
+    }
+
+    /**
+     * Неверный пакет (больше MAX_BATCH_SIZE позиций, нет библиотекаря) - 400 с описанием.
+     */
+    @Test
+    void invalidBatch() throws Exception {
+        String ids = LongStream.rangeClosed(1, BookLoanService.MAX_BATCH_SIZE + 1)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(", ", "[", "]"));
+        mockMvc.perform(post("/loans/return-batch").contentType(MediaType.APPLICATION_JSON).content(ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("" + BookLoanService.MAX_BATCH_SIZE)));
+        mockMvc.perform(post("/loans/checkout-batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\": [{\"bookId\": 1, \"readerId\": 1}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Библиотекарь обязателен"));
+    }
+}
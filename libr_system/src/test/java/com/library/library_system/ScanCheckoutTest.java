@@ -0,0 +1,61 @@
+package com.library.library_system;
+
+import com.library.library_system.metrics.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Выдача по штрихкодам (/loans/scan).
+ */
+class ScanCheckoutTest extends EmbeddedPostgresTest {
+
+    /**
+     * Выдача по штрихкодам: номер книги и номер билета переводятся в ID через индекс LookupService,
+     * повторное сканирование выданной книги - 409, неизвестный билет - 404.
+     */
+    @Test
+    void scanCheckout() throws Exception {
+        jdbcTemplate.update("INSERT INTO books (book_id, book_number, title, author, publication_year, version) " +
+                "VALUES (103, 'B103', 'Книга 103', 'Автор 103', 2000, 0)");
+        lookupService.warmUp();
+        assertThat(lookupService.findBookId("B103")).isEqualTo(103L);
+        entityManagerFactory.getCache().evictAll();
+
+        mockMvc.perform(post("/loans/scan").param("bookNumber", " B103 ").param("ticketNumber", "T3")
+                        .param("librarianId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CHECKED_OUT"))
+                .andExpect(jsonPath("$.readerId").value(3));
+        assertThat(SqlStatementCounter.getCount()).as("SQL-запросов").isLessThanOrEqualTo(6);
+
+        mockMvc.perform(post("/loans/scan").param("bookNumber", "B103").param("ticketNumber", "T4")
+                        .param("librarianId", "1"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("BOOK_UNAVAILABLE"));
+        mockMvc.perform(post("/loans/scan").param("bookNumber", "B103").param("ticketNumber", "T999")
+                        .param("librarianId", "1"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value("READER_NOT_FOUND"));
+        assertLoanStateConsistent();
+    }
+    /**
+     * Неизвестный библиотекарь - 400 с описанием, книга остается доступной.
+     */
+    @Test
+    void scanWithUnknownLibrarian() throws Exception {
+        String bookNumber = jdbcTemplate.queryForObject("SELECT book_number FROM books " +
+                "WHERE current_loan_id IS NULL ORDER BY book_id LIMIT 1", String.class);
+
+        mockMvc.perform(post("/loans/scan").param("bookNumber", bookNumber).param("ticketNumber", "T1")
+                        .param("librarianId", "999999"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Библиотекарь с ID 999999 не найден"));
+        assertThat(jdbcTemplate.queryForObject("SELECT current_loan_id FROM books WHERE book_number = ?",
+                Long.class, bookNumber)).isNull();
+        assertLoanStateConsistent();
+    }
+}
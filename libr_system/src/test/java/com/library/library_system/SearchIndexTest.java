@@ -0,0 +1,214 @@
+package com.library.library_system;
+
+import com.library.library_system.service.BookLoanService;
+import com.library.library_system.service.BookService;
+import com.library.library_system.service.LibrarianService;
+import com.library.library_system.service.ReaderService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.DigestUtils;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Поиск книг, читателей и библиотекарей использует индексы.
+ * Встроенный PostgreSQL запущен с auto_explain: план каждого запроса с фактическими
+ * параметрами пишется в журнал сервера, тест читает планы поисковых запросов из журнала.
+ * Значения полей - md5 в base64 (буквы и цифры), поэтому искомые подстроки и префиксы
+ * селективны и последовательное чтение таблицы означает, что подходящего индекса нет.
+ */
+@SpringBootTest(classes = LibrarySystemApplication.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SearchIndexTest {
+
+    private static final int ROWS = 20_000;
+
+    private static final Path SERVER_LOG = createServerLog();
+
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ReaderService readerService;
+
+    @Autowired
+    private LibrarianService librarianService;
+
+    @Autowired
+    private BookLoanService bookLoanService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    /**
+     * ROWS книг, читателей и библиотекарей; название, автор и ФИО - token() от префикса и номера строки.
+     * У каждой книги одна возвращенная выдача читателю и библиотекарю с тем же номером строки.
+     */
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("CREATE FUNCTION token(text) RETURNS text IMMUTABLE LANGUAGE sql " +
+                "AS $$ SELECT translate(encode(decode(md5($1), 'hex'), 'base64'), '+/=', '') $$");
+        jdbcTemplate.update("INSERT INTO books (book_number, title, author, publication_year, version) " +
+                "SELECT 'B' || g, token('title' || g), token('author' || g), 2000, 0 FROM generate_series(1, ?) g", ROWS);
+        jdbcTemplate.update("INSERT INTO readers (ticket_number, full_name, phone_number, registration_date, " +
+                "active_loan_count, version) " +
+                "SELECT 'T' || g, token('reader' || g), '+7(9' || substr(p, 1, 2) || ')' || substr(p, 3, 3) || '-' || " +
+                "       substr(p, 6, 2) || '-' || substr(p, 8, 2), current_date, 0, 0 " +
+                "FROM generate_series(1, ?) g, lpad(g::text, 9, '0') p", ROWS);
+        jdbcTemplate.update("INSERT INTO librarians (librarian_number, full_name, position) " +
+                "SELECT 'L' || g, token('librarian' || g), 'Библиотекарь' FROM generate_series(1, ?) g", ROWS);
+        jdbcTemplate.update("INSERT INTO book_loans (book_id, reader_id, librarian_id, loan_date, due_date, return_date) " +
+                "SELECT b.book_id, r.reader_id, l.librarian_id, current_date - 20, current_date - 6, current_date - 10 " +
+                "FROM generate_series(1, ?) g " +
+                "JOIN books b ON b.book_number = 'B' || g " +
+                "JOIN readers r ON r.ticket_number = 'T' || g " +
+                "JOIN librarians l ON l.librarian_number = 'L' || g", ROWS);
+        jdbcTemplate.update("INSERT INTO readers (ticket_number, full_name, phone_number, registration_date, " +
+                "active_loan_count, version) VALUES ('T-RU', 'Иванова Анна Сергеевна', '+7(999)999-99-99', current_date, 0, 0)");
+        // VACUUM переносит строки из списка ожидания GIN в индекс и обновляет его статистику для планировщика
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @AfterAll
+    void stopPostgres() throws IOException {
+        POSTGRES.close();
+    }
+
+    /**
+     * @param table таблица справочника или loans - поиск выдач по книге, читателю и библиотекарю
+     * @param source префикс token() искомой строки (как при заполнении)
+     * @param length длина запроса: от 3 символов - подстрока, короче - префикс
+     * @param index индекс, который должен быть в плане
+     */
+    @ParameterizedTest(name = "{0}, запрос из {2} символов: {3}")
+    @CsvSource({
+            "books, title, 6, idx_books_title_trgm",
+            "books, title, 2, idx_books_lower_title",
+            "readers, reader, 6, idx_readers_full_name_trgm",
+            "readers, reader, 2, idx_readers_lower_full_name",
+            "librarians, librarian, 6, idx_librarians_full_name_trgm",
+            "librarians, librarian, 2, idx_librarians_lower_full_name",
+            "loans, title, 6, idx_books_title_trgm",
+            "loans, title, 2, idx_books_lower_title"
+    })
+    void searchUsesIndex(String table, String source, int length, String index) throws IOException {
+        String value = token(source + 42);
+        // Подстрока из середины значения, префикс - с начала; в верхнем регистре
+        String keyword = (length >= 3 ? value.substring(10, 10 + length) : value.substring(0, length)).toUpperCase();
+
+        // Поиск выдач ищет совпадения во всех справочниках: ни один из них не читается целиком
+        boolean loans = table.equals("loans");
+        long logOffset = Files.size(SERVER_LOG);
+        Page<?> result = search(table, keyword);
+        List<String> plans = plansSince(logOffset, loans ? "books" : table);
+
+        assertThat(result.getTotalElements()).as("найдено по '%s'", keyword).isPositive();
+        assertThat(plans).as("планы запросов к %s", table).isNotEmpty();
+        assertThat(String.join("\n", plans))
+                .contains(index)
+                .doesNotContain(loans
+                        ? new String[] {"Seq Scan on books", "Seq Scan on readers", "Seq Scan on librarians"}
+                        : new String[] {"Seq Scan on " + table});
+    }
+
+    /**
+     * Регистр кириллицы не учитывается (база с локалью UTF-8).
+     */
+    @Test
+    void searchIgnoresCyrillicCase() {
+        assertThat(readerService.searchReaders("иванова", 0, 10).getContent())
+                .extracting("ticketNumber")
+                .containsExactly("T-RU");
+        assertThat(readerService.searchReaders("ИВ", 0, 10).getContent())
+                .extracting("ticketNumber")
+                .containsExactly("T-RU");
+    }
+
+    private Page<?> search(String table, String keyword) {
+        return switch (table) {
+            case "books" -> bookService.searchBooks(keyword, 0, 20);
+            case "readers" -> readerService.searchReaders(keyword, 0, 20);
+            case "loans" -> bookLoanService.searchLoans(keyword, 0, 20);
+            default -> librarianService.searchLibrarians(keyword, 0, 20);
+        };
+    }
+
+    /**
+     * То же, что SQL-функция token(): md5 в base64 без символов +, / и =.
+     */
+    private static String token(String text) {
+        byte[] md5 = DigestUtils.md5Digest(text.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(md5).replaceAll("[+/=]", "");
+    }
+
+    /**
+     * Планы auto_explain, записанные в журнал после offset, для запросов к таблице.
+     */
+    private static List<String> plansSince(long offset, String table) throws IOException {
+        String log;
+        try (RandomAccessFile file = new RandomAccessFile(SERVER_LOG.toFile(), "r")) {
+            byte[] bytes = new byte[(int) (file.length() - offset)];
+            file.seek(offset);
+            file.readFully(bytes);
+            log = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> plans = new ArrayList<>();
+        for (String entry : log.split("LOG:\\s+duration:")) {
+            if (entry.contains("Query Text:") && entry.toLowerCase().contains("from " + table + " ")) {
+                plans.add(entry);
+            }
+        }
+        return plans;
+    }
+
+    private static Path createServerLog() {
+        try {
+            return Files.createTempFile("search-index-test", ".log");
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось создать журнал PostgreSQL", e);
+        }
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.builder()
+                    .setLocaleConfig("locale", "C.UTF-8")
+                    .setServerConfig("shared_preload_libraries", "auto_explain")
+                    .setServerConfig("auto_explain.log_min_duration", "0")
+                    .setErrorRedirector(ProcessBuilder.Redirect.appendTo(SERVER_LOG.toFile()))
+                    .setOutputRedirector(ProcessBuilder.Redirect.appendTo(SERVER_LOG.toFile()))
+                    .start();
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось запустить встроенный PostgreSQL", e);
+        }
+    }
+}
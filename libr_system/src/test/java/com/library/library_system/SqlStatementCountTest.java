@@ -0,0 +1,124 @@
+package com.library.library_system;
+
+import com.library.library_system.metrics.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.FlashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Количество SQL-запросов на один HTTP-запрос.
+ * Данные содержат десятки выдач с разными книгами и читателями, поэтому
+ * появление N+1 (ленивая загрузка связей по строке) превышает лимит и роняет сборку.
+ * Кэш второго уровня очищается перед каждым запросом, чтобы не скрывать лишние запросы.
+ */
+class SqlStatementCountTest extends EmbeddedPostgresTest {
+
+    @ParameterizedTest(name = "{0}: не больше {1} запросов")
+    @CsvSource({
+            "/books, 1",
+            "/books/search?keyword=книга, 1",
+            "/readers, 1",
+            "/readers/search?keyword=читатель, 1",
+            "/librarians, 1",
+            "/librarians/search?keyword=библиотекарь, 1",
+            "/loans, 1",
+            "/loans/active, 1",
+            "/loans/overdue, 1",
+            "/loans/returned, 1",
+            "/loans/search?keyword=Читатель, 3"
+    })
+    void listPages(String url, int maxStatements) throws Exception {
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        assertThat(SqlStatementCounter.getCount()).as(url).isLessThanOrEqualTo(maxStatements);
+    }
+
+    /**
+     * Возврат: выдача с книгой и читателем одним запросом и три обновления.
+     */
+    @Test
+    void returnBook() throws Exception {
+        Long loanId = jdbcTemplate.queryForObject("SELECT min(loan_id) FROM book_loans " +
+                "WHERE return_date IS NULL AND due_date >= current_date", Long.class);
+
+        mockMvc.perform(get("/loans/return/{id}", loanId)).andExpect(status().is3xxRedirection());
+
+        assertThat(SqlStatementCounter.getCount()).isLessThanOrEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT return_date IS NOT NULL FROM book_loans WHERE loan_id = ?",
+                Boolean.class, loanId)).isTrue();
+    }
+
+    /**
+     * Повторный запрос страницы с актуальным ETag: 304 без SQL-запросов.
+     */
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"/books", "/readers", "/librarians", "/loans", "/loans/overdue"})
+    void notModified(String url) throws Exception {
+        String etag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        assertThat(SqlStatementCounter.getCount()).isZero();
+    }
+
+    /**
+     * Неудачное действие перенаправляет на список с сообщением об ошибке, не меняя данных:
+     * страница с сообщением отдается полностью и без ETag, несмотря на актуальный If-None-Match.
+     */
+    @Test
+    void errorRedirectNotServedFromCache() throws Exception {
+        String etag = mockMvc.perform(get("/loans")).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        FlashMap flash = mockMvc.perform(get("/loans/return/999999"))
+                .andExpect(status().is3xxRedirection())
+                .andReturn().getFlashMap();
+        assertThat(flash.get("errorMessage")).isNotNull();
+
+        mockMvc.perform(get("/loans").flashAttrs(flash).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(content().string(containsString((String) flash.get("errorMessage"))));
+        mockMvc.perform(get("/loans").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+    }
+
+    /**
+     * После изменения данных страница с прежним ETag отдается заново.
+     */
+    @Test
+    void etagChangesAfterReturn() throws Exception {
+        String etag = mockMvc.perform(get("/loans")).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Long loanId = jdbcTemplate.queryForObject("SELECT max(loan_id) FROM book_loans " +
+                "WHERE return_date IS NULL AND due_date >= current_date", Long.class);
+
+        mockMvc.perform(get("/loans/return/{id}", loanId)).andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/loans").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    /**
+     * Проверка перед удалением библиотекаря не загружает его выдачи.
+     */
+    @Test
+    void deleteLibrarianWithLoans() throws Exception {
+        mockMvc.perform(get("/librarians/delete/{id}", 1L)).andExpect(status().is3xxRedirection());
+
+        assertThat(SqlStatementCounter.getCount()).isLessThanOrEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM librarians WHERE librarian_id = 1",
+                Integer.class)).isEqualTo(1);
+    }
+}